@@ -0,0 +1,15 @@
+package com.sky.constant;
+
+/**
+ * 延迟任务主题及延迟时间
+ */
+public class DelayConstant {
+
+    // 订单支付超时：下单后15分钟仍未支付则自动取消
+    public static final String PAY_TIMEOUT = "order.pay.timeout";
+    public static final long PAY_TIMEOUT_MILLIS = 15 * 60 * 1000L;
+
+    // 订单派送超时：开始派送后24小时仍未完成则自动取消
+    public static final String DELIVERY_TIMEOUT = "order.delivery.timeout";
+    public static final long DELIVERY_TIMEOUT_MILLIS = 24 * 60 * 60 * 1000L;
+}
@@ -24,4 +24,14 @@ public class MessageConstant {
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
     public static final String ALREADY_EXISTS = "用户已存在";
+    public static final String ADDRESS_GEOCODING_FAILED = "地址解析失败";
+    public static final String ROUTE_PLANNING_FAILED = "配送路线规划失败";
+    public static final String OUT_OF_DELIVERY_RANGE = "超出配送范围，下单失败";
+    public static final String STOCK_NOT_ENOUGH = "商品库存不足";
+    public static final String SUBMIT_TOKEN_INVALID = "下单令牌无效，请刷新后重试";
+    public static final String ORDER_SUBMITTING = "订单正在提交中，请勿重复提交";
+    public static final String ORDER_INTAKE_NOT_FOUND = "下单凭证不存在或已过期";
+    public static final String ITEM_NOT_ON_SALE = "商品已停售";
+    public static final String ORDER_AMOUNT_CHANGED = "商品价格已变化，请刷新购物车后重新下单";
+    public static final String PAGE_CURSOR_INVALID = "分页游标无效";
 }
@@ -12,4 +12,57 @@ public class RedisConstant {
     public static final String SALES_KEY = "sales:";
     // 销量数据过期时间（天）
     public static final long SALES_EXPIRE_DAYS = 90;
+
+    // 地址经纬度缓存 Key 前缀，后面接规范化地址的 MD5：geo:coord:9e107d9d372bb6826bd81d3542a419d6
+    public static final String GEO_COORDINATE_KEY = "geo:coord:";
+    // 骑行距离缓存 Key 前缀，后面接起终点坐标的 MD5：geo:route:9e107d9d372bb6826bd81d3542a419d6
+    public static final String GEO_ROUTE_KEY = "geo:route:";
+
+    // 雪花算法机器号租约 Key 前缀，后面接机器号：snowflake:worker:12
+    public static final String SNOWFLAKE_WORKER_KEY = "snowflake:worker:";
+
+    // 菜品库存 Key 前缀，后面接菜品id：stock:dish:51，不存在表示不限量
+    public static final String STOCK_DISH_KEY = "stock:dish:";
+    // 套餐库存 Key 前缀，后面接套餐id：stock:setmeal:32，不存在表示不限量
+    public static final String STOCK_SETMEAL_KEY = "stock:setmeal:";
+    // 订单库存预占记录 Key 前缀，后面接订单号：stock:reserved:0000000001234567890
+    public static final String STOCK_RESERVED_KEY = "stock:reserved:";
+
+    // 下单令牌 Key 前缀，后面接用户id和令牌：order:submit:token:8:6f1c...
+    public static final String ORDER_SUBMIT_TOKEN_KEY = "order:submit:token:";
+    // 下单结果 Key 前缀，后面接用户id和令牌，提交中为占位值，完成后为下单结果：order:submit:result:8:6f1c...
+    public static final String ORDER_SUBMIT_RESULT_KEY = "order:submit:result:";
+
+    // 异步下单受理结果 Key 前缀，后面接用户id和排队凭证：order:intake:8:0000000001234567890
+    public static final String ORDER_INTAKE_KEY = "order:intake:";
+
+    // 价格目录版本号 Key，菜品/套餐每次修改加1，各实例据此判断本地价格目录是否过期
+    public static final String PRICE_CATALOG_VERSION_KEY = "price:catalog:version";
+
+    // 已处理的微信支付交易号 Key 前缀，后面接交易号：pay:transaction:4200001234202601011234567890
+    public static final String PAY_TRANSACTION_KEY = "pay:transaction:";
+    // 交易号去重记录保留时间（天），覆盖微信支付通知的重试周期
+    public static final long PAY_TRANSACTION_EXPIRE_DAYS = 2;
+
+    // 各状态订单总数 Hash Key，field 为订单状态：order:count:total
+    public static final String ORDER_COUNT_TOTAL_KEY = "order:count:total";
+    // 每日各状态订单数 Hash Key 前缀，后面接下单日期，field 为订单状态，all 为当日订单总数：order:count:day:2026-02-23
+    public static final String ORDER_COUNT_DAY_KEY = "order:count:day:";
+    // 每日订单数保留时间（天）
+    public static final long ORDER_COUNT_DAY_EXPIRE_DAYS = 7;
+    // 未结束订单的当前状态 Hash Key，field 为订单id，value 为 状态:下单日期：order:count:live
+    public static final String ORDER_COUNT_LIVE_KEY = "order:count:live";
+
+    // 延迟任务有序集合 Key 前缀，后面接主题，score 为到期时间戳：delay:queue:order.pay.timeout
+    public static final String DELAY_QUEUE_KEY = "delay:queue:";
+    // 已认领延迟任务有序集合 Key 前缀，后面接主题，score 为租约到期时间戳：delay:lease:order.pay.timeout
+    public static final String DELAY_LEASE_KEY = "delay:lease:";
+    // 延迟任务执行次数 Hash Key 前缀，后面接主题，field 为任务id：delay:attempts:order.pay.timeout
+    public static final String DELAY_ATTEMPTS_KEY = "delay:attempts:";
+
+    // 超时订单扫描租约 Key，value 为持有租约的实例标识：order:sweep:lease
+    public static final String ORDER_SWEEP_LEASE_KEY = "order:sweep:lease";
+
+    // 订单计数器校正租约 Key，value 为持有租约的实例标识：order:count:reconcile:lease
+    public static final String ORDER_COUNT_RECONCILE_LEASE_KEY = "order:count:reconcile:lease";
 }
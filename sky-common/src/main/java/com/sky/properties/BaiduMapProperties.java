@@ -0,0 +1,21 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.baidu")
+@Data
+public class BaiduMapProperties {
+
+    private String ak; //百度地图开放平台的ak
+
+    /**
+     * 地理编码/路线规划结果缓存相关配置
+     */
+    private long localCacheMaxSize = 10000; //本地缓存最大条目数，超出后按LRU淘汰
+    private long localCacheExpireMinutes = 60; //本地缓存过期时间（分钟）
+    private long redisCacheExpireDays = 30; //Redis缓存过期时间（天）
+
+}
@@ -0,0 +1,25 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.delay")
+@Data
+public class DelayProperties {
+
+    private String type = "rabbit"; //延迟任务实现：rabbit 固定TTL队列，redis 有序集合，memory 进程内（单实例调试用）
+    private long pollIntervalMillis = 1000; //有序集合实现的轮询间隔（毫秒）
+    private int batchSize = 100; //每次认领的最大任务数
+    private long leaseMillis = 30000; //认领后的租期（毫秒），超时未确认的任务会被重新投递
+    private int maxAttempts = 5; //最大执行次数，超过后丢弃并记录日志
+
+    private boolean wheelEnabled = true; //是否先用进程内时间轮计时，本地到期后仍未支付/完成的订单才交给上面的实现
+    private long wheelTickMillis = 100; //时间轮精度（毫秒）
+    private int wheelSize = 64; //时间轮每层的桶数
+    private long payLocalMillis = 10000; //支付超时任务在本地计时的时长（毫秒）
+    private long deliveryLocalMillis = 3600000; //派送超时任务在本地计时的时长（毫秒）
+    private long handOffRetryMillis = 1000; //交给延迟任务实现失败后的重试间隔（毫秒）
+
+}
@@ -0,0 +1,31 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池配置
+     */
+    private int maxTotal = 200; //连接池最大连接数
+    private int maxPerRoute = 50; //每个目标主机的最大连接数
+
+    /**
+     * 超时配置（毫秒）
+     */
+    private int connectTimeout = 5000; //建立连接超时
+    private int socketTimeout = 5000; //读取数据超时
+    private int connectionRequestTimeout = 1000; //从连接池获取连接超时
+
+    /**
+     * 连接保活配置（秒）
+     */
+    private long keepAliveSeconds = 30; //服务端未返回Keep-Alive时连接的默认保活时间
+    private long maxIdleSeconds = 30; //空闲超过该时间的连接会被后台线程关闭
+
+}
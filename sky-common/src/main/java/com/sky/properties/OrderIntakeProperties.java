@@ -0,0 +1,16 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-intake")
+@Data
+public class OrderIntakeProperties {
+
+    private boolean enabled = false; //是否开启异步下单，开启后下单接口只受理并返回排队凭证
+    private int concurrency = 4; //每个实例写入订单的消费者数量
+    private long ticketExpireMinutes = 30; //排队凭证的保留时间（分钟）
+
+}
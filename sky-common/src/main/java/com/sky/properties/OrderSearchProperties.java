@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-search")
+@Data
+public class OrderSearchProperties {
+
+    private boolean enabled = true; //是否开启订单号/手机号搜索索引，关闭后按 like 查询
+    private int windowDays = 30; //只索引最近多少天的订单，更早的订单按 like 查询
+    private int loadBatchSize = 5000; //构建索引时分批加载订单的批大小
+    private int maxResults = 1000; //命中超过该数量时退回 like 查询，避免 id in 列表过长
+    private long syncLookbackSeconds = 60; //增量同步时向前多查的时间（秒），覆盖提交较晚的订单
+
+}
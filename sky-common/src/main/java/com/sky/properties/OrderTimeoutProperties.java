@@ -0,0 +1,23 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-timeout")
+@Data
+public class OrderTimeoutProperties {
+
+    private int concurrency = 1; //每个超时处理队列的消费者数量
+    private int batchSize = 200; //每批处理的最大消息数
+    private long batchTimeoutMillis = 500; //凑批的最长等待时间（毫秒）
+    private int maxAttempts = 5; //单条消息最多处理次数，仍失败则转入死信队列
+
+    private int sweepBatchSize = 200; //超时订单扫描每批的订单数
+    private int sweepMaxBatches = 50; //每次扫描最多处理的批数，剩余的留到下一次
+    private long sweepLeaseSeconds = 300; //扫描租约时长（秒），应大于一次扫描的耗时
+    private long payGraceSeconds = 120; //支付超时后再等待多久仍未取消才由扫描兜底（秒）
+    private long deliveryGraceMinutes = 10; //开始派送24小时后再等待多久仍未取消才由扫描兜底（分钟）
+
+}
@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.outbox")
+@Data
+public class OutboxProperties {
+
+    private int batchSize = 100; //每批投递的最大消息数
+    private int maxRetry = 10; //最大投递次数，超过后标记为投递失败
+    private long confirmTimeoutMillis = 5000; //等待 broker 确认的超时时间（毫秒）
+    private long staleSeconds = 60; //投递中状态超过该时间视为实例宕机，允许其它实例重新认领
+    private int retainDays = 3; //已投递消息的保留天数
+
+}
@@ -0,0 +1,19 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.pay-notify")
+@Data
+public class PayNotifyProperties {
+
+    private boolean async = false; //是否开启快速应答：回调只解密入队后立即应答，由消费者批量处理
+    private int concurrency = 2; //每个实例处理支付通知的消费者数量
+    private int batchSize = 50; //每批处理的最大通知数
+    private long batchTimeoutMillis = 200; //凑批的最长等待时间（毫秒）
+    private long confirmTimeoutMillis = 3000; //入队等待 broker 确认的超时时间（毫秒），超时则不应答，由微信重试
+    private boolean mockEnabled = false; //是否开启本地模拟微信支付通知接口，仅用于压测
+
+}
@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.publish-confirm")
+@Data
+public class PublishConfirmProperties {
+
+    private int maxRetry = 5; //最大发送次数，被拒绝、退回或确认超时后重发，超过后放弃并记录日志
+    private long confirmTimeoutMillis = 5000; //等待 broker 确认的超时时间（毫秒），超时视为失败
+
+}
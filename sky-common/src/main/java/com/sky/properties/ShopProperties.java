@@ -0,0 +1,34 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "sky.shop")
+@Data
+public class ShopProperties {
+
+    private String address; //商家地址
+    private Double lat; //商家纬度，不配置时根据地址解析
+    private Double lng; //商家经度，不配置时根据地址解析
+
+    /**
+     * 配送范围相关配置
+     */
+    private int radius = 5000; //配送半径（米），按骑行距离计算
+    private List<String> polygon = new ArrayList<>(); //配送区域多边形顶点，格式 lat,lng，不配置则只按半径判断
+    private int tileSize = 200; //预计算网格的边长（米）
+    private double detourFactor = 1.5; //骑行距离与直线距离之比的上限，用于判定明确在范围内的网格
+
+    /**
+     * 订单金额相关配置
+     */
+    private BigDecimal deliveryFee = new BigDecimal(6); //配送费（元）
+    private BigDecimal packFee = BigDecimal.ONE; //每份商品的打包费（元）
+
+}
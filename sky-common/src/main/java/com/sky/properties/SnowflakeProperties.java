@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.snowflake")
+@Data
+public class SnowflakeProperties {
+
+    private long workerId = -1; //机器号 0~1023，小于0时从Redis租用
+    private long epoch = 1704067200000L; //起始时间 2024-01-01 00:00:00 UTC，上线后不能修改
+    private long maxBackwardMillis = 5000; //允许的最大时钟回拨（毫秒）
+    private long leaseSeconds = 60; //从Redis租用机器号的租期（秒），每1/3租期续约一次
+
+}
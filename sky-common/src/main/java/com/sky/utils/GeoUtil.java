@@ -0,0 +1,55 @@
+package com.sky.utils;
+
+import java.util.List;
+
+/**
+ * 经纬度计算工具类
+ */
+public class GeoUtil {
+
+    // 地球平均半径（米）
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    // 每纬度对应的距离（米）
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+
+    /**
+     * 计算两点之间的球面距离（米）
+     */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 解析 lat,lng 格式的坐标
+     *
+     * @return 长度为2的数组，[0]为纬度，[1]为经度
+     */
+    public static double[] parse(String coordinate) {
+        String[] split = coordinate.split(",");
+        return new double[]{Double.parseDouble(split[0].trim()), Double.parseDouble(split[1].trim())};
+    }
+
+    /**
+     * 射线法判断点是否在多边形内
+     *
+     * @param polygon 多边形顶点，每个元素为 [lat, lng]
+     */
+    public static boolean inPolygon(double lat, double lng, List<double[]> polygon) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            double[] a = polygon.get(i);
+            double[] b = polygon.get(j);
+            if ((a[0] > lat) != (b[0] > lat)
+                    && lng < (b[1] - a[1]) * (lat - a[0]) / (b[0] - a[0]) + a[1]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
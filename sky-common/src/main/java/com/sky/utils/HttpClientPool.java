@@ -0,0 +1,156 @@
+package com.sky.utils;
+
+import com.sky.properties.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享的Http连接池
+ * 所有出站调用复用同一个客户端，连接在请求之间保活复用，避免每次请求重新建立TCP+TLS连接
+ * 同时提供一个基于NIO的非阻塞客户端，异步请求不占用调用线程
+ */
+@Component
+@Slf4j
+public class HttpClientPool {
+
+    private final HttpClientProperties properties;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private final CloseableHttpAsyncClient httpAsyncClient;
+
+    public HttpClientPool(HttpClientProperties properties) {
+        this.properties = properties;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        // 连接空闲超过2秒后再次使用前先校验，避免拿到被服务端关闭的连接
+        connectionManager.setValidateAfterInactivity(2000);
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+                .setSocketTimeout(properties.getSocketTimeout())
+                .build();
+
+        // 服务端返回了Keep-Alive就按服务端的来，否则使用默认保活时间
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : properties.getKeepAliveSeconds() * 1000;
+        };
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                // 后台线程定期清理过期和空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getMaxIdleSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        // 非阻塞客户端：少量IO线程即可承载大量并发请求
+        try {
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setConnectTimeout(properties.getConnectTimeout())
+                    .setSoTimeout(properties.getSocketTimeout())
+                    .build();
+            asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("创建非阻塞Http连接池失败", e);
+        }
+        asyncConnectionManager.setMaxTotal(properties.getMaxTotal());
+        asyncConnectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+
+        httpAsyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .build();
+        httpAsyncClient.start();
+    }
+
+    /**
+     * 注册为HttpClientUtil使用的连接池
+     */
+    @PostConstruct
+    public void register() {
+        log.info("开始创建Http连接池：{}", properties);
+        HttpClientUtil.setHttpClientPool(this);
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public CloseableHttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClient;
+    }
+
+    public RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * 连接池统计：leased 使用中、available 空闲可复用、pending 等待获取连接的请求数、max 最大连接数
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 非阻塞连接池统计
+     */
+    public PoolStats getAsyncStats() {
+        return asyncConnectionManager.getTotalStats();
+    }
+
+    /**
+     * 每分钟打印一次连接池状态，并回收非阻塞连接池中过期和空闲的连接
+     */
+    @Scheduled(cron = "0 0/1 * * * ?")
+    public void logStats() {
+        asyncConnectionManager.closeExpiredConnections();
+        asyncConnectionManager.closeIdleConnections(properties.getMaxIdleSeconds(), TimeUnit.SECONDS);
+
+        PoolStats stats = getStats();
+        PoolStats asyncStats = getAsyncStats();
+        log.debug("Http连接池状态：leased={}, available={}, pending={}, max={}",
+                stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+        log.debug("非阻塞Http连接池状态：leased={}, available={}, pending={}, max={}",
+                asyncStats.getLeased(), asyncStats.getAvailable(), asyncStats.getPending(), asyncStats.getMax());
+        if (stats.getPending() > 0 || asyncStats.getPending() > 0) {
+            log.warn("Http连接池出现等待：{}，{}", stats, asyncStats);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            httpClient.close();
+            httpAsyncClient.close();
+        } catch (IOException e) {
+            log.error("关闭Http连接池失败", e);
+        }
+    }
+}
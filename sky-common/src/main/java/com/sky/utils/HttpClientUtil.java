@@ -1,16 +1,16 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
@@ -19,13 +19,41 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Http工具类
+ * 所有请求共用同一个连接池，Spring环境下使用容器中的HttpClientPool，否则使用默认配置创建
  */
 public class HttpClientUtil {
 
-    static final  int TIMEOUT_MSEC = 5 * 1000;
+    private static volatile HttpClientPool httpClientPool;
+
+    /**
+     * 设置共享连接池
+     * @param pool
+     */
+    public static void setHttpClientPool(HttpClientPool pool) {
+        httpClientPool = pool;
+    }
+
+    /**
+     * 获取共享连接池，未设置时使用默认配置懒加载
+     * @return
+     */
+    public static HttpClientPool getHttpClientPool() {
+        HttpClientPool pool = httpClientPool;
+        if (pool == null) {
+            synchronized (HttpClientUtil.class) {
+                pool = httpClientPool;
+                if (pool == null) {
+                    pool = new HttpClientPool(new HttpClientProperties());
+                    httpClientPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
 
     /**
      * 发送GET方式请求
@@ -34,9 +62,6 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
         CloseableHttpResponse response = null;
 
@@ -53,7 +78,7 @@ public class HttpClientUtil {
             HttpGet httpGet = new HttpGet(uri);
 
             //发送请求
-            response = httpClient.execute(httpGet);
+            response = getHttpClientPool().getHttpClient().execute(httpGet);
 
             //判断响应状态
             if(response.getStatusLine().getStatusCode() == 200){
@@ -62,17 +87,63 @@ public class HttpClientUtil {
         }catch (Exception e){
             e.printStackTrace();
         }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return result;
     }
 
+    /**
+     * 发送GET方式请求（非阻塞）
+     * 请求由NIO客户端发出，调用线程立即返回，可以和其它请求并发执行、组合结果
+     * 响应码不是200时结果为空串，与doGet保持一致；网络异常时future异常完成
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            URIBuilder builder = new URIBuilder(url);
+            if (paramMap != null) {
+                for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                    builder.addParameter(param.getKey(), param.getValue());
+                }
+            }
+            HttpGet httpGet = new HttpGet(builder.build());
+
+            getHttpClientPool().getHttpAsyncClient().execute(httpGet, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    try {
+                        String result = "";
+                        if (response.getStatusLine().getStatusCode() == 200) {
+                            result = EntityUtils.toString(response.getEntity(), "UTF-8");
+                        } else {
+                            EntityUtils.consume(response.getEntity());
+                        }
+                        future.complete(result);
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    future.cancel(false);
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * 发送POST方式请求
      * @param url
@@ -81,8 +152,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -101,20 +170,12 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
-
             // 执行http请求
-            response = httpClient.execute(httpPost);
+            response = getHttpClientPool().getHttpClient().execute(httpPost);
 
             resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return resultString;
@@ -128,8 +189,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -151,29 +210,30 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
-
             // 执行http请求
-            response = httpClient.execute(httpPost);
+            response = getHttpClientPool().getHttpClient().execute(httpPost);
 
             resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return resultString;
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+    /**
+     * 读完并关闭响应，把连接归还给连接池（不关闭客户端）
+     * @param response
+     */
+    private static void release(CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            EntityUtils.consume(response.getEntity());
+            response.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
 }
@@ -0,0 +1,138 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法ID生成器
+ * 41位毫秒时间戳 + 10位机器号 + 12位毫秒内序列，按时间递增，单机每毫秒最多生成4096个
+ * 时间戳和序列打包在一个AtomicLong里，通过CAS推进，不加锁
+ * 机器号来自租约时，只在租约有效期内生成：超过有效期仍未续约（例如与Redis断连）、或租约丢失被暂停时拒绝生成，
+ * 重新租到机器号后再恢复
+ */
+public class SnowflakeIdGenerator {
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+
+    // 订单号固定宽度，long 最大值为19位
+    private static final int NUMBER_WIDTH = 19;
+
+    private final long epoch;
+    private final long maxBackwardMillis;
+    // 当前机器号，暂停生成时为-1
+    private volatile long workerId;
+    // 机器号租约的有效期（毫秒时间戳），固定机器号时不限
+    private volatile long leaseUntil = Long.MAX_VALUE;
+
+    // 高位为相对epoch的时间戳，低12位为该毫秒内已使用的序列
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param epoch             起始时间戳（毫秒），上线后不能再修改
+     * @param workerId          机器号 0~1023，同一时刻不同实例必须不同
+     * @param maxBackwardMillis 允许的最大时钟回拨（毫秒），回拨期间沿用上一次的时间戳继续分配序列
+     */
+    public SnowflakeIdGenerator(long epoch, long workerId, long maxBackwardMillis) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 超出范围 0~" + MAX_WORKER_ID + "：" + workerId);
+        }
+        this.epoch = epoch;
+        this.workerId = workerId;
+        this.maxBackwardMillis = maxBackwardMillis;
+    }
+
+    /**
+     * 生成下一个ID
+     * @return
+     */
+    public long nextId() {
+        long workerId = this.workerId;
+        if (workerId < 0) {
+            throw new IllegalStateException("未持有机器号租约，暂停生成ID");
+        }
+        if (System.currentTimeMillis() >= leaseUntil) {
+            throw new IllegalStateException("机器号租约已超过有效期仍未续约，暂停生成ID");
+        }
+        while (true) {
+            long now = System.currentTimeMillis() - epoch;
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+
+            long next;
+            if (now > lastTimestamp) {
+                // 进入新的毫秒，序列从0开始
+                next = now << SEQUENCE_BITS;
+            } else {
+                // 同一毫秒内，或者时钟发生了回拨：沿用上一次的时间戳，保证单调递增
+                if (lastTimestamp - now > maxBackwardMillis) {
+                    throw new IllegalStateException("时钟回拨 " + (lastTimestamp - now) + " 毫秒，拒绝生成ID");
+                }
+                if ((last & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                    // 当前毫秒序列已用完，等待时钟走到下一毫秒
+                    Thread.yield();
+                    continue;
+                }
+                next = last + 1;
+            }
+
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << TIMESTAMP_SHIFT) | (workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成固定19位的数字编号，不足位数左侧补0，字符串顺序与时间顺序一致
+     * @return
+     */
+    public String nextNumber() {
+        String id = Long.toString(nextId());
+        StringBuilder number = new StringBuilder(NUMBER_WIDTH);
+        for (int i = id.length(); i < NUMBER_WIDTH; i++) {
+            number.append('0');
+        }
+        return number.append(id).toString();
+    }
+
+    /**
+     * 暂停生成，之后调用 nextId 抛出异常，直到 resume
+     */
+    public void suspend() {
+        workerId = -1;
+    }
+
+    /**
+     * 续约成功后延长有效期
+     * @param leaseUntil 新的有效期（毫秒时间戳），应早于Redis中租约的实际过期时间
+     */
+    public void renew(long leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    /**
+     * 使用新的机器号恢复生成，时间戳和序列沿用原来的状态，仍然单调递增
+     * @param workerId
+     * @param leaseUntil 新租约的有效期（毫秒时间戳）
+     */
+    public void resume(long workerId, long leaseUntil) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 超出范围 0~" + MAX_WORKER_ID + "：" + workerId);
+        }
+        // 先更新有效期，再切换机器号
+        this.leaseUntil = leaseUntil;
+        this.workerId = workerId;
+    }
+
+    /**
+     * 当前机器号，暂停时为-1
+     * @return
+     */
+    public long getWorkerId() {
+        return workerId;
+    }
+}
@@ -0,0 +1,289 @@
+package com.sky.utils;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮（参考 Kafka 的延迟操作管理）
+ * 每层时间轮有 wheelSize 个桶，每个桶是一个双向链表，超出本层范围的定时任务放到上一层（跨度为本层总跨度）
+ * 添加、取消都是 O(1)；只有非空的桶才进入 DelayQueue，时钟由到期的桶驱动推进，没有空转
+ * 上层的桶到期后，其中的任务按剩余时间重新放入下层，直到真正到期后交给 expiredHandler
+ */
+public class TimingWheel<T> {
+
+    private final Consumer<T> expiredHandler;
+    private final DelayQueue<Bucket<T>> queue = new DelayQueue<>();
+    // 当前挂在各个桶中的任务数
+    private final AtomicInteger size = new AtomicInteger();
+    // 添加任务持读锁，推进时钟持写锁，保证推进期间各层的当前时间不变
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Wheel<T> root;
+
+    /**
+     * @param tickMillis     最底层每个桶的时间跨度（毫秒），即定时精度
+     * @param wheelSize      每层的桶数
+     * @param expiredHandler 任务到期回调，在推进时钟的线程上持锁执行，应尽快返回
+     */
+    public TimingWheel(long tickMillis, int wheelSize, Consumer<T> expiredHandler) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis 和 wheelSize 必须大于0");
+        }
+        this.expiredHandler = expiredHandler;
+        this.root = new Wheel<>(tickMillis, wheelSize, System.currentTimeMillis(), size, queue);
+    }
+
+    /**
+     * 添加定时任务，已经到期的任务直接回调
+     *
+     * @param value       任务
+     * @param delayMillis 延迟时间（毫秒）
+     * @return 用于取消任务的句柄
+     */
+    public Timeout<T> add(T value, long delayMillis) {
+        Timeout<T> timeout = new Timeout<>(value, System.currentTimeMillis() + delayMillis);
+        lock.readLock().lock();
+        try {
+            addTimeout(timeout);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return timeout;
+    }
+
+    private void addTimeout(Timeout<T> timeout) {
+        // 放不进时间轮说明已到期或已取消
+        if (!root.add(timeout) && !timeout.isCancelled()) {
+            expiredHandler.accept(timeout.value);
+        }
+    }
+
+    /**
+     * 等待下一个到期的桶并推进时钟，处理期间顺带处理所有已到期的桶
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否推进了时钟
+     * @throws InterruptedException
+     */
+    public boolean advance(long timeoutMillis) throws InterruptedException {
+        Bucket<T> bucket = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.getExpiration());
+                bucket.flush(this::addTimeout);
+                bucket = queue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * 尚未到期、未取消的任务数
+     *
+     * @return
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 定时任务句柄，同时是桶中链表的节点
+     */
+    public static final class Timeout<T> {
+
+        private final T value;
+        private final long expiration;
+        private volatile boolean cancelled;
+
+        // 以下字段由所在桶的锁保护
+        private volatile Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * 取消任务，从所在的桶中摘下
+         *
+         * @return 是否由本次调用取消
+         */
+        public boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            remove();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void remove() {
+            // 可能恰好被推进线程移到了别的桶，循环直到真正摘下
+            Bucket<T> current = bucket;
+            while (current != null) {
+                current.remove(this);
+                current = bucket;
+            }
+        }
+    }
+
+    /**
+     * 一层时间轮
+     */
+    private static class Wheel<T> {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long interval;
+        private final AtomicInteger size;
+        private final DelayQueue<Bucket<T>> queue;
+        private final Bucket<T>[] buckets;
+
+        // 当前时间，按 tickMillis 向下取整
+        private long currentTime;
+        // 上一层时间轮，需要时才创建
+        private volatile Wheel<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Wheel(long tickMillis, int wheelSize, long startMillis, AtomicInteger size, DelayQueue<Bucket<T>> queue) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.interval = tickMillis * wheelSize;
+            this.size = size;
+            this.queue = queue;
+            this.currentTime = startMillis - (startMillis % tickMillis);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>(size);
+            }
+        }
+
+        private boolean add(Timeout<T> timeout) {
+            long expiration = timeout.expiration;
+            if (timeout.isCancelled() || expiration < currentTime + tickMillis) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMillis;
+                Bucket<T> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                // 桶被复用到新的一轮时才需要重新入队
+                if (bucket.setExpiration(virtualId * tickMillis)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            return getOverflow().add(timeout);
+        }
+
+        private Wheel<T> getOverflow() {
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflow == null) {
+                        overflow = new Wheel<>(interval, wheelSize, currentTime, size, queue);
+                    }
+                }
+            }
+            return overflow;
+        }
+
+        private void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tickMillis) {
+                currentTime = timeMillis - (timeMillis % tickMillis);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的一个桶，保存到期时间落在同一个 tick 内的任务
+     */
+    private static class Bucket<T> implements Delayed {
+
+        // 哨兵节点
+        private final Timeout<T> head = new Timeout<>(null, -1);
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private final AtomicInteger size;
+
+        private Bucket(AtomicInteger size) {
+            this.size = size;
+            head.prev = head;
+            head.next = head;
+        }
+
+        private synchronized void add(Timeout<T> timeout) {
+            Timeout<T> tail = head.prev;
+            timeout.prev = tail;
+            timeout.next = head;
+            timeout.bucket = this;
+            tail.next = timeout;
+            head.prev = timeout;
+            size.incrementAndGet();
+        }
+
+        private synchronized void remove(Timeout<T> timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            timeout.prev.next = timeout.next;
+            timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size.decrementAndGet();
+        }
+
+        /**
+         * 摘下桶中所有任务逐个交给 consumer，并重置到期时间
+         */
+        private synchronized void flush(Consumer<Timeout<T>> consumer) {
+            Timeout<T> timeout = head.next;
+            while (timeout != head) {
+                remove(timeout);
+                consumer.accept(timeout);
+                timeout = head.next;
+            }
+            expiration.set(-1);
+        }
+
+        private boolean setExpiration(long expirationMillis) {
+            return expiration.getAndSet(expirationMillis) != expirationMillis;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket<?>) other).getExpiration());
+        }
+    }
+}
@@ -2,37 +2,43 @@ package com.sky.utils;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
 import com.sky.properties.WeChatProperties;
 import com.wechat.pay.contrib.apache.httpclient.WechatPayHttpClientBuilder;
+import com.wechat.pay.contrib.apache.httpclient.auth.PrivateKeySigner;
 import com.wechat.pay.contrib.apache.httpclient.util.PemUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.PrivateKey;
-import java.security.Signature;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Base64;
-import java.util.List;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 微信支付工具类
+ * 商户私钥、平台证书、签名器和带连接池的客户端只解析、创建一次，证书文件更新后自动重建
  */
 @Component
+@Slf4j
 public class WeChatPayUtil {
 
     //微信支付下单接口地址
@@ -41,34 +47,72 @@ public class WeChatPayUtil {
     //申请退款接口地址
     public static final String REFUNDS = "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds";
 
+    // 检查证书文件是否更新的间隔（毫秒）
+    private static final long ROTATION_CHECK_INTERVAL = 60 * 1000;
+
     @Autowired
     private WeChatProperties weChatProperties;
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    // 解析好的私钥、证书、签名器和客户端，首次使用时创建，证书文件更新后重建
+    private volatile Credentials credentials;
+    // 被替换下来的客户端，下次轮换时再关闭，避免中断正在进行的请求
+    private Credentials retired;
+    private volatile long nextRotationCheck;
 
     /**
      * 获取调用微信接口的客户端工具对象
      *
      * @return
      */
-    private CloseableHttpClient getClient() {
-        PrivateKey merchantPrivateKey = null;
-        try {
-            //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
-            merchantPrivateKey = PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath())));
-            //加载平台证书文件
-            X509Certificate x509Certificate = PemUtil.loadCertificate(new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath())));
-            //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
-            List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
+    private CloseableHttpClient getClient() throws IOException {
+        return getCredentials().httpClient;
+    }
 
-            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
-                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
-                    .withWechatPay(wechatPayCertificates);
+    /**
+     * 获取当前的商户凭证，按间隔检查私钥和平台证书文件是否被替换
+     * 重建失败（例如证书文件只写了一半）时继续使用旧凭证，到下一个检查间隔再重试
+     */
+    private Credentials getCredentials() throws IOException {
+        Credentials current = credentials;
+        long now = System.currentTimeMillis();
+        if (current != null && now < nextRotationCheck) {
+            return current;
+        }
+        synchronized (this) {
+            current = credentials;
+            if (current == null || (now >= nextRotationCheck && current.isStale(weChatProperties))) {
+                Credentials created;
+                try {
+                    created = new Credentials(weChatProperties, httpClientProperties);
+                } catch (IOException | RuntimeException e) {
+                    if (current == null) {
+                        throw e;
+                    }
+                    log.error("微信支付证书文件已更新，但重建商户凭证失败，继续使用旧凭证", e);
+                    nextRotationCheck = now + ROTATION_CHECK_INTERVAL;
+                    return current;
+                }
+                if (retired != null) {
+                    retired.close();
+                }
+                retired = current;
+                credentials = created;
+                current = created;
+            }
+            nextRotationCheck = now + ROTATION_CHECK_INTERVAL;
+            return current;
+        }
+    }
 
-            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
+    @PreDestroy
+    public synchronized void close() {
+        if (credentials != null) {
+            credentials.close();
+        }
+        if (retired != null) {
+            retired.close();
         }
     }
 
@@ -88,13 +132,9 @@ public class WeChatPayUtil {
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        // 客户端是共享的，只关闭响应，连接归还连接池
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
@@ -112,13 +152,8 @@ public class WeChatPayUtil {
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
@@ -187,10 +222,8 @@ public class WeChatPayUtil {
             String signMessage = stringBuilder.toString();
             byte[] message = signMessage.getBytes();
 
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))));
-            signature.update(message);
-            String packageSign = Base64.getEncoder().encodeToString(signature.sign());
+            //复用已解析的商户私钥签名，不再读取私钥文件
+            String packageSign = getCredentials().signer.sign(message).getSign();
 
             //构造数据给微信小程序，用于调起微信支付
             JSONObject jo = new JSONObject();
@@ -232,4 +265,70 @@ public class WeChatPayUtil {
         //调用申请退款接口
         return post(REFUNDS, body);
     }
+
+    /**
+     * 商户凭证：私钥、平台证书、签名器以及基于它们构建的带连接池的客户端
+     */
+    private static class Credentials {
+
+        private final long privateKeyModified;
+        private final long certificateModified;
+        private final PrivateKeySigner signer;
+        private final CloseableHttpClient httpClient;
+
+        private Credentials(WeChatProperties weChatProperties, HttpClientProperties httpClientProperties) throws IOException {
+            File privateKeyFile = new File(weChatProperties.getPrivateKeyFilePath());
+            File certificateFile = new File(weChatProperties.getWeChatPayCertFilePath());
+            this.privateKeyModified = privateKeyFile.lastModified();
+            this.certificateModified = certificateFile.lastModified();
+
+            PrivateKey merchantPrivateKey;
+            X509Certificate x509Certificate;
+            //merchantPrivateKey商户API私钥
+            try (FileInputStream in = new FileInputStream(privateKeyFile)) {
+                merchantPrivateKey = PemUtil.loadPrivateKey(in);
+            }
+            //加载平台证书文件
+            try (FileInputStream in = new FileInputStream(certificateFile)) {
+                x509Certificate = PemUtil.loadCertificate(in);
+            }
+            this.signer = new PrivateKeySigner(weChatProperties.getMchSerialNo(), merchantPrivateKey);
+
+            // 只访问微信支付一个域名，连接总数与单路由上限相同
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(httpClientProperties.getMaxPerRoute());
+            connectionManager.setDefaultMaxPerRoute(httpClientProperties.getMaxPerRoute());
+            connectionManager.setValidateAfterInactivity(2000);
+
+            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
+            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
+                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
+                    .withWechatPay(Collections.singletonList(x509Certificate));
+            builder.setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(httpClientProperties.getConnectTimeout())
+                            .setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout())
+                            .setSocketTimeout(httpClientProperties.getSocketTimeout())
+                            .build())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(httpClientProperties.getMaxIdleSeconds(), TimeUnit.SECONDS);
+            this.httpClient = builder.build();
+        }
+
+        /**
+         * 私钥或平台证书文件被替换
+         */
+        private boolean isStale(WeChatProperties weChatProperties) {
+            return new File(weChatProperties.getPrivateKeyFilePath()).lastModified() != privateKeyModified
+                    || new File(weChatProperties.getWeChatPayCertFilePath()).lastModified() != certificateModified;
+        }
+
+        private void close() {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                // 关闭旧客户端失败不影响新客户端
+            }
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class OrderStatusCountDTO implements Serializable {
+
+    //订单状态
+    private Integer status;
+    //订单数量
+    private Integer count;
+
+}
@@ -0,0 +1,16 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class OrdersBatchDTO implements Serializable {
+
+    //订单id列表
+    private List<Long> ids;
+    //订单取消原因，批量取消时使用
+    private String cancelReason;
+
+}
@@ -5,6 +5,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class OrdersPageQueryDTO implements Serializable {
@@ -27,4 +28,15 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页：上一页返回的游标，为空表示查询第一页
+    private String cursor;
+
+    //游标分页：由游标解析出的上一页最后一条订单的下单时间和id
+    private LocalDateTime lastOrderTime;
+
+    private Long lastId;
+
+    //搜索索引按订单号/手机号命中的订单id，不为空时代替 like 条件
+    private List<Long> ids;
+
 }
@@ -28,4 +28,6 @@ public class OrdersSubmitDTO implements Serializable {
     private Integer packAmount;
     //总金额
     private BigDecimal amount;
+    //下单令牌，同一令牌只会下单一次，重复提交返回首次的下单结果
+    private String submitToken;
 }
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 
 /**
  * 地址簿
@@ -58,4 +59,10 @@ public class AddressBook implements Serializable {
 
     //是否默认 0否 1是
     private Integer isDefault;
+
+    //纬度，保存地址后由后台异步解析填充
+    private BigDecimal lat;
+
+    //经度
+    private BigDecimal lng;
 }
@@ -44,6 +44,9 @@ public class Dish implements Serializable {
     //0 停售 1 起售
     private Integer status;
 
+    //库存 null表示不限量
+    private Integer stock;
+
     @JsonSerialize(using = LocalDateTimeSerializer.class)
     @JsonDeserialize(using = LocalDateTimeDeserializer.class)
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -0,0 +1,57 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 订单消息发件箱
+ * 与业务数据在同一个事务中写入，由后台任务投递到RabbitMQ
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOutbox implements Serializable {
+
+    /**
+     * 投递状态 0待投递 1投递中 2已投递 3投递失败
+     */
+    public static final Integer PENDING = 0;
+    public static final Integer SENDING = 1;
+    public static final Integer SENT = 2;
+    public static final Integer FAILED = 3;
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    //交换机
+    private String exchange;
+
+    //路由键
+    private String routingKey;
+
+    //消息内容（json）
+    private String payload;
+
+    //消息内容的类型
+    private String payloadType;
+
+    //投递状态 0待投递 1投递中 2已投递 3投递失败
+    private Integer status;
+
+    //已重试次数
+    private Integer retryCount;
+
+    //正在投递该消息的实例
+    private String owner;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,69 @@
+package com.sky.entity;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单状态流转表：每种操作允许的起始状态和目标状态
+ * 流转通过一条 update ... where id = ? and status in (...) 完成，影响行数为0说明状态已被并发修改
+ */
+@Getter
+public enum OrderTransition {
+
+    /**
+     * 接单：待接单 -> 已接单
+     */
+    CONFIRM(Orders.CONFIRMED, false, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 拒单：待接单 -> 已取消，已支付的改为退款
+     */
+    REJECT(Orders.CANCELLED, true, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 商家取消：未完成的订单 -> 已取消，已支付的改为退款
+     */
+    CANCEL(Orders.CANCELLED, true,
+            Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS),
+
+    /**
+     * 用户取消：待付款、待接单 -> 已取消，已支付的改为退款
+     */
+    USER_CANCEL(Orders.CANCELLED, true, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 支付超时：待付款 -> 已取消
+     */
+    PAY_TIMEOUT(Orders.CANCELLED, false, Orders.PENDING_PAYMENT),
+
+    /**
+     * 派送超时：派送中 -> 已取消
+     */
+    DELIVERY_TIMEOUT(Orders.CANCELLED, false, Orders.DELIVERY_IN_PROGRESS),
+
+    /**
+     * 派送：已接单 -> 派送中
+     */
+    DELIVER(Orders.DELIVERY_IN_PROGRESS, false, Orders.CONFIRMED),
+
+    /**
+     * 完成：派送中 -> 已完成
+     */
+    COMPLETE(Orders.COMPLETED, false, Orders.DELIVERY_IN_PROGRESS);
+
+    // 目标状态
+    private final Integer to;
+    // 流转时是否把已支付改为退款
+    private final boolean refund;
+    // 允许的起始状态
+    private final List<Integer> from;
+
+    OrderTransition(Integer to, boolean refund, Integer... from) {
+        this.to = to;
+        this.refund = refund;
+        this.from = Collections.unmodifiableList(Arrays.asList(from));
+    }
+}
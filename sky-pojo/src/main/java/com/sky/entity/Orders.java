@@ -102,12 +102,16 @@ public class Orders implements Serializable {
     //配送状态  1立即送出  0选择具体时间
     private Integer deliveryStatus;
 
+    //开始派送时间
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime deliveryStartTime;
+
     //送达时间
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime deliveryTime;
 
     //打包费
-    private int packAmount=6;
+    private BigDecimal packAmount;
 
     //餐具数量
     private int tablewareNumber;
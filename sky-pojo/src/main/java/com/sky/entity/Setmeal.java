@@ -39,6 +39,9 @@ public class Setmeal implements Serializable {
     //图片
     private String image;
 
+    //库存 null表示不限量
+    private Integer stock;
+
     private LocalDateTime createTime;
 
     private LocalDateTime updateTime;
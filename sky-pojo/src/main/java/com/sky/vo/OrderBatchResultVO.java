@@ -0,0 +1,22 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultVO implements Serializable {
+
+    //订单id
+    private Long id;
+    //是否操作成功
+    private Boolean success;
+    //失败原因
+    private String message;
+}
@@ -0,0 +1,37 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeVO implements Serializable {
+
+    /**
+     * 受理状态 0排队中 1下单成功 2下单失败
+     */
+    public static final Integer QUEUED = 0;
+    public static final Integer SUCCESS = 1;
+    public static final Integer FAILED = 2;
+
+    //排队凭证，即最终的订单号
+    private String ticket;
+    //受理状态 0排队中 1下单成功 2下单失败
+    private Integer status;
+    //订单id，下单成功后才有
+    private Long orderId;
+    //订单金额
+    private BigDecimal orderAmount;
+    //下单时间
+    private LocalDateTime orderTime;
+    //下单失败原因
+    private String message;
+}
@@ -0,0 +1,31 @@
+package com.sky.Listener;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.service.OrderIntakeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class OrderIntakeListener {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    /**
+     * 监听下单队列，消费者数量固定，数据库写入速度不随请求量上涨
+     */
+    @RabbitListener(queues = "order.intake.queue", concurrency = "${sky.order-intake.concurrency:4}")
+    public void processIntake(String message) {
+        JSONObject jsonObject = JSON.parseObject(message);
+        Long userId = jsonObject.getLong("userId");
+        String ticket = jsonObject.getString("ticket");
+        OrdersSubmitDTO ordersSubmitDTO = jsonObject.getObject("order", OrdersSubmitDTO.class);
+        log.info("【异步下单】开始处理排队凭证 {}", ticket);
+        orderIntakeService.process(userId, ticket, ordersSubmitDTO);
+    }
+}
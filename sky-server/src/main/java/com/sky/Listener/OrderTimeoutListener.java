@@ -1,116 +1,152 @@
 package com.sky.Listener;
 
-import com.sky.entity.Orders;
-import com.sky.mapper.OrderMapper;
+import com.rabbitmq.client.Channel;
+import com.sky.properties.OrderTimeoutProperties;
+import com.sky.service.OrderTimeoutService;
+import com.sky.service.PublishConfirmService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import java.time.LocalDateTime;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 订单超时队列监听
+ * 每次拿到一批订单id：第一级检测批量筛选后转入第二级队列，第二级检测一条语句批量取消
+ * 整批处理成功后一次确认；整批失败时逐条处理，仍失败的消息带上处理次数重新投递到原队列，
+ * 超过最大次数转入死信队列，不会整批反复重新入队
+ * 重新投递和转入死信队列都经过发送确认，未确认的消息会重发
+ */
 @Component
 @Slf4j
 public class OrderTimeoutListener {
 
+    // 记录消息已处理次数的消息头
+    private static final String ATTEMPTS_HEADER = "sky-attempts";
+
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
     @Autowired
-    private OrderMapper orderMapper;
+    private MessageConverter messageConverter;
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private PublishConfirmService publishConfirmService;
+    @Autowired
+    private OrderTimeoutProperties orderTimeoutProperties;
 
     /**
-     * 订单支付超时第一道关卡：监听 10 秒死信队列
+     * 订单支付超时第一道关卡：监听 10 秒死信队列，仍未支付的订单打入 14分50秒 大延迟队列
      */
-    @RabbitListener(queues = "order.process.10s.queue")
-    public void process10sTimeout(Long orderId) {
-        log.info("【10秒检测】收到订单 {} 的检测通知", orderId);
-
-        // 1. 去数据库查这个订单此时此刻的最新状态
-        Orders orders = orderMapper.getById(orderId);
-
-        // 2. 幂等性防御：订单必须存在，且依然是“待支付”状态 (status = 1)
-        if (orders != null && orders.getStatus().equals(Orders.PENDING_PAYMENT)) {
-            log.info("【10秒检测】订单 {} 仍未支付，将其打入 14分50秒 大延迟队列", orderId);
-
-            // 3. 没付钱？扔进第二条流水线！让他再睡 890 秒
-            rabbitTemplate.convertAndSend("order.direct", "order.delay.14m", orderId);
-        } else {
-            // 如果用户在这10秒内光速付完款了，状态已经变成了“已支付”，这里直接跳过，啥也不干
-            log.info("【10秒检测】订单 {} 已支付或状态改变，终止追踪", orderId);
-        }
+    @RabbitListener(queues = "order.process.10s.queue", containerFactory = "orderTimeoutContainerFactory")
+    public void process10sTimeout(List<Message> messages, Channel channel) throws IOException {
+        process("10秒检测", messages, channel, orderTimeoutService::payCheckBatch);
     }
 
     /**
      * 订单支付超时第二道关卡：监听 14分50秒 最终死信队列 (加上前面的10秒，刚好15分钟)
      */
-    @RabbitListener(queues = "order.process.14m.queue")
-    public void process14mTimeout(Long orderId) {
-        log.info("【最终检测】收到订单 {}，准备执行最终判决", orderId);
-
-        // 1. 再次去查数据库最新状态
-        Orders orders = orderMapper.getById(orderId);
-
-        // 2. 最后一次判断：过了15分钟了，还是待支付吗？
-        if (orders != null && orders.getStatus().equals(Orders.PENDING_PAYMENT)) {
-            log.info("【最终检测】订单 {} 满15分钟未支付，执行自动取消！", orderId);
+    @RabbitListener(queues = "order.process.14m.queue", containerFactory = "orderTimeoutContainerFactory")
+    public void process14mTimeout(List<Message> messages, Channel channel) throws IOException {
+        process("支付超时", messages, channel, orderTimeoutService::payTimeoutBatch);
+    }
 
-            // 3. 执行苍穹外卖标准的取消逻辑
-            orders.setStatus(Orders.CANCELLED);
-            orders.setCancelReason("支付超时，系统自动取消");
-            orders.setCancelTime(LocalDateTime.now());
-            orderMapper.update(orders);
+    /**
+     * 订单派送超时第一道关卡：监听60分钟死信队列，仍未派送的订单打入 23小时 大延迟队列
+     */
+    @RabbitListener(queues = "order.process.60m.queue", containerFactory = "orderTimeoutContainerFactory")
+    public void process60mTimeout(List<Message> messages, Channel channel) throws IOException {
+        process("60分钟检测", messages, channel, orderTimeoutService::deliveryCheckBatch);
+    }
 
-            // 注：如果是真实企业项目，这里可能还要去调用微信支付的关闭订单API，以及恢复商品库存
+    /**
+     * 订单派送超时第二道关卡：监听23小时 终死信队列 (加上前面的60分钟，刚好24小时)
+     */
+    @RabbitListener(queues = "order.process.23h.queue", containerFactory = "orderTimeoutContainerFactory")
+    public void process23hTimeout(List<Message> messages, Channel channel) throws IOException {
+        process("派送超时", messages, channel, orderTimeoutService::deliveryTimeoutBatch);
+    }
 
-        } else {
-            log.info("【最终检测】订单 {} 已支付或已处理，不执行取消", orderId);
+    /**
+     * 处理一批消息并手动确认，记录批大小、生效数和滞后时间
+     */
+    private void process(String stage, List<Message> messages, Channel channel,
+                         Function<List<Long>, Integer> handler) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<Message, Long> orderIds = new LinkedHashMap<>();
+        long maxLag = 0;
+        for (Message message : messages) {
+            try {
+                orderIds.put(message, ((Number) messageConverter.fromMessage(message)).longValue());
+            } catch (Exception e) {
+                // 无法解析的消息重新入队也无法处理，随整批确认丢弃
+                log.error("【{}】无法解析的消息：{}", stage, message, e);
+            }
+            maxLag = Math.max(maxLag, lag(message, now));
         }
+        // 同一批消息来自同一个信道，确认最后一条即可一并确认
+        long deliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        int affected;
+        try {
+            affected = orderIds.isEmpty() ? 0 : handler.apply(new ArrayList<>(orderIds.values()));
+        } catch (Exception e) {
+            log.error("【{}】处理一批订单失败，改为逐条处理，数量：{}", stage, orderIds.size(), e);
+            affected = processEach(stage, orderIds, handler);
+        }
+        channel.basicAck(deliveryTag, true);
+        log.info("【{}】处理一批订单，数量：{}，生效：{}，最大滞后：{}ms，耗时：{}ms",
+                stage, orderIds.size(), affected, maxLag, System.currentTimeMillis() - now);
     }
 
     /**
-     * 订单派送超时第一道关卡：监听60分钟死信队列
+     * 逐条处理，失败的消息重新投递到原队列，超过最大处理次数转入死信队列
+     *
+     * @return 生效数
      */
-    @RabbitListener(queues = "order.process.60m.queue")
-    public void process60mTimeout(Long orderId) {
-        log.info("【60分钟检测】收到订单 {} 的检测通知", orderId);
-
-        // 1. 去数据库查这个订单此时此刻的最新状态
-        Orders orders = orderMapper.getById(orderId);
-
-        // 2. 幂等性防御：订单必须存在，且依然是“待派送”状态 (status = 4)
-        if (orders != null && orders.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            log.info("【60分钟检测】订单 {} 仍未派送，将其打入 23小时 大延迟队列", orderId);
-            rabbitTemplate.convertAndSend("order.direct", "order.delay.23h", orderId);
+    private int processEach(String stage, Map<Message, Long> orderIds, Function<List<Long>, Integer> handler) {
+        int affected = 0;
+        for (Map.Entry<Message, Long> entry : orderIds.entrySet()) {
+            try {
+                affected += handler.apply(Collections.singletonList(entry.getValue()));
+            } catch (Exception e) {
+                retry(stage, entry.getKey(), entry.getValue(), e);
+            }
+        }
+        return affected;
+    }
 
-        } else {
-            // 如果用户在这60分钟内光速派送了，状态已经变成了“已派送”，这里直接跳过，啥也不干
-            log.info("【60分钟检测】订单 {} 已派送或状态改变，终止追踪", orderId);
+    private void retry(String stage, Message message, Long orderId, Exception cause) {
+        Object header = message.getMessageProperties().getHeaders().get(ATTEMPTS_HEADER);
+        int attempts = (header instanceof Number ? ((Number) header).intValue() : 0) + 1;
+        if (attempts >= orderTimeoutProperties.getMaxAttempts()) {
+            log.error("【{}】订单 {} 处理 {} 次仍失败，转入死信队列", stage, orderId, attempts, cause);
+            publishConfirmService.send("order.dlx", "order.timeout.dead", message);
+            return;
         }
+        log.warn("【{}】订单 {} 第 {} 次处理失败，重新投递", stage, orderId, attempts, cause);
+        message.getMessageProperties().setHeader(ATTEMPTS_HEADER, attempts);
+        // 通过默认交换机直接投递回消费的队列
+        publishConfirmService.send("", message.getMessageProperties().getConsumerQueue(), message);
     }
 
     /**
-     * 订单派送超时第二道关卡：监听23小时 终死信队列 (加上前面的60分钟，刚好24小时)
+     * 消息从延迟队列过期进入死信队列后等待了多久才被处理（毫秒）
      */
-    @RabbitListener(queues = "order.process.23h.queue")
-    public void process23hTimeout(Long orderId) {
-        log.info("【最终检测】收到订单 {}，准备执行最终判决", orderId);
-
-        // 1. 获取订单最新状态
-        Orders orders = orderMapper.getById(orderId);
-
-        // 2. 最后一次判断：过了24小时了，还是待派送吗？
-        if (orders != null && orders.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            log.info("【最终检测】订单 {} 满24小时未派送，执行自动取消！", orderId);
-
-            // 3. 执行苍穹外卖标准的取消逻辑
-            orders.setStatus(Orders.CANCELLED);
-            orders.setCancelReason("派送超时，系统自动取消");
-            orders.setCancelTime(LocalDateTime.now());
-            orderMapper.update(orders);
-
-        }
-        else {
-            log.info("【最终检测】订单 {} 已派送或已处理，不执行取消", orderId);
+    private long lag(Message message, long now) {
+        List<Map<String, ?>> xDeath = message.getMessageProperties().getXDeathHeader();
+        if (xDeath == null || xDeath.isEmpty()) {
+            return 0;
         }
+        Object time = xDeath.get(0).get("time");
+        return time instanceof Date ? Math.max(now - ((Date) time).getTime(), 0) : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.sky.Listener;
+
+import com.sky.service.PayNotifyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class PayNotifyListener {
+
+    @Autowired
+    private PayNotifyService payNotifyService;
+
+    /**
+     * 监听支付通知队列，每次拿到一批通知后在一个事务里处理
+     * 处理失败抛出异常，整批重新入队，已处理的通知会被幂等跳过
+     */
+    @RabbitListener(queues = "pay.notify.queue", containerFactory = "payNotifyContainerFactory")
+    public void processPayNotify(List<String> messages) {
+        log.info("【支付通知】开始处理一批通知，数量：{}", messages.size());
+        payNotifyService.process(messages);
+    }
+}
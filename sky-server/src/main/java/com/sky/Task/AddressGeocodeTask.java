@@ -0,0 +1,116 @@
+package com.sky.Task;
+
+import com.sky.entity.AddressBook;
+import com.sky.mapper.AddressBookMapper;
+import com.sky.service.GeoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Component
+@Slf4j
+public class AddressGeocodeTask {
+
+    // 每批补偿的地址数
+    private static final int BACKFILL_BATCH_SIZE = 100;
+    // 每次补偿最多处理的批数，剩余的留到下一次
+    private static final int BACKFILL_MAX_BATCHES = 10;
+    // 解析失败达到该次数后不再补偿，修改地址后重新计数
+    private static final int MAX_FAIL_COUNT = 8;
+
+    @Autowired
+    private AddressBookMapper addressBookMapper;
+    @Autowired
+    private GeoService geoService;
+
+    /**
+     * 保存/修改地址后异步解析经纬度并回填
+     *
+     * @param id 地址id
+     */
+    @Async("geocodeExecutor")
+    public void fillCoordinate(Long id) {
+        AddressBook addressBook = addressBookMapper.getById(id);
+        if (addressBook != null) {
+            fill(addressBook);
+        }
+    }
+
+    /**
+     * 把已经解析好的坐标异步回填到地址簿，不再调用远程接口
+     * 地址在解析期间被修改时按地址各部分的条件更新不会生效
+     *
+     * @param addressBook 解析时的地址
+     * @param coordinate  坐标 lat,lng
+     */
+    @Async("geocodeExecutor")
+    public void saveCoordinate(AddressBook addressBook, String coordinate) {
+        try {
+            String[] latLng = coordinate.split(",");
+            addressBookMapper.updateCoordinate(addressBook, new BigDecimal(latLng[0]), new BigDecimal(latLng[1]));
+        } catch (Exception e) {
+            // 回填失败由定时任务补偿
+            log.error("地址 {} 回填经纬度失败", addressBook.getId(), e);
+        }
+    }
+
+    /**
+     * 定时补偿
+     * 每隔十分钟按id顺序回填尚未解析经纬度的地址（异步任务被丢弃、解析失败、历史数据）
+     * 解析失败的地址按失败次数退避，无法解析的地址不会一直占用每次补偿的名额
+     */
+    @Scheduled(cron = "0 0/10 * * * ?")
+    public void backfill() {
+        long lastId = 0;
+        int total = 0;
+        int failed = 0;
+        for (int i = 0; i < BACKFILL_MAX_BATCHES; i++) {
+            List<AddressBook> list = addressBookMapper.listWithoutCoordinate(lastId, LocalDateTime.now(),
+                    MAX_FAIL_COUNT, BACKFILL_BATCH_SIZE);
+            for (AddressBook addressBook : list) {
+                if (!fill(addressBook)) {
+                    failed++;
+                }
+            }
+            total += list.size();
+            if (list.size() < BACKFILL_BATCH_SIZE) {
+                break;
+            }
+            lastId = list.get(list.size() - 1).getId();
+        }
+        if (total > 0) {
+            log.info("补偿解析地址经纬度完成，数量：{}，失败：{}", total, failed);
+        }
+    }
+
+    /**
+     * 解析并回填经纬度，失败时记录失败次数和下次重试时间
+     *
+     * @return 是否解析成功
+     */
+    private boolean fill(AddressBook addressBook) {
+        String address = addressBook.getProvinceName() +
+                addressBook.getCityName() +
+                addressBook.getDistrictName() +
+                addressBook.getDetail();
+        try {
+            String[] coordinate = geoService.getCoordinate(address).split(",");
+            addressBookMapper.updateCoordinate(addressBook, new BigDecimal(coordinate[0]), new BigDecimal(coordinate[1]));
+            return true;
+        } catch (Exception e) {
+            log.error("地址 {} 经纬度解析失败", addressBook.getId(), e);
+            try {
+                addressBookMapper.markGeocodeFailed(addressBook.getId(), LocalDateTime.now());
+            } catch (Exception ex) {
+                log.error("记录地址 {} 解析失败次数失败", addressBook.getId(), ex);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.sky.Task;
+
+import com.sky.service.impl.ZSetDelayScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class DelayPollTask {
+
+    // 使用 RabbitMQ 延迟队列时不存在
+    @Autowired(required = false)
+    private ZSetDelayScheduler zSetDelayScheduler;
+
+    /**
+     * 轮询有序集合中的到期延迟任务
+     */
+    @Scheduled(fixedDelayString = "${sky.delay.poll-interval-millis:1000}")
+    public void poll() {
+        if (zSetDelayScheduler == null) {
+            return;
+        }
+        try {
+            zSetDelayScheduler.poll();
+        } catch (Exception e) {
+            log.error("轮询延迟任务失败", e);
+        }
+    }
+}
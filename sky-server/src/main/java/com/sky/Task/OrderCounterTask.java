@@ -0,0 +1,71 @@
+package com.sky.Task;
+
+import com.sky.constant.RedisConstant;
+import com.sky.service.OrderCounterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单计数器校正
+ * 通过 Redis 租约保证同一时刻只有一个实例在校正，租约短于校正间隔，持有租约的实例宕机后由其他实例接手
+ */
+@Component
+@Slf4j
+public class OrderCounterTask {
+
+    // 租约时长（秒），短于校正间隔
+    private static final long LEASE_SECONDS = 240;
+
+    // 只释放自己持有的租约
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) " +
+                    "else return 0 end", Long.class);
+
+    @Autowired
+    private OrderCounterService orderCounterService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 当前实例的租约标识
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    /**
+     * 启动后执行一次，之后每5分钟用数据库校正一次
+     */
+    @Scheduled(initialDelay = 10000, fixedDelay = 300000)
+    public void reconcile() {
+        try {
+            Boolean leased = stringRedisTemplate.opsForValue().setIfAbsent(
+                    RedisConstant.ORDER_COUNT_RECONCILE_LEASE_KEY, leaseOwner, LEASE_SECONDS, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(leased)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.error("获取订单计数器校正租约失败", e);
+            return;
+        }
+
+        try {
+            orderCounterService.reconcile();
+        } catch (Exception e) {
+            log.error("订单计数器校正失败", e);
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT,
+                        Collections.singletonList(RedisConstant.ORDER_COUNT_RECONCILE_LEASE_KEY), leaseOwner);
+            } catch (Exception e) {
+                // 释放失败时等租约自然过期
+                log.error("释放订单计数器校正租约失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.Task;
+
+import com.sky.service.OrderSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class OrderSearchTask {
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    /**
+     * 每5秒同步一次订单搜索索引，首次构建和淘汰过期订单的重建在后台线程进行
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void sync() {
+        try {
+            orderSearchService.sync();
+        } catch (Exception e) {
+            log.error("同步订单搜索索引失败", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.sky.Task;
+
+import com.sky.constant.DelayConstant;
+import com.sky.constant.RedisConstant;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderTimeoutProperties;
+import com.sky.service.OrderTimeoutService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 超时订单扫描，兜底延迟消息丢失、Redis 延迟任务写入失败、本地时间轮随进程丢失等情况
+ * 待付款按 (status, order_time, id)、派送中按 (status, delivery_start_time, id) 索引分批向后扫描，
+ * 只会读到已经超时却仍未处理的订单，开销与这些订单数成正比；
+ * 取消与监听器共用同一套条件更新，与迟到的延迟消息并发时只生效一次
+ * 通过 Redis 租约保证同一时刻只有一个实例在扫描
+ */
+@Component
+@Slf4j
+public class OrderTimeoutSweepTask {
+
+    // 只释放自己持有的租约
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) " +
+                    "else return 0 end", Long.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+    @Autowired
+    private OrderTimeoutProperties orderTimeoutProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 当前实例的租约标识
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    /**
+     * 启动30秒后执行一次，之后每分钟扫描一次
+     */
+    @Scheduled(initialDelay = 30000, fixedDelay = 60000)
+    public void sweep() {
+        try {
+            Boolean leased = stringRedisTemplate.opsForValue().setIfAbsent(RedisConstant.ORDER_SWEEP_LEASE_KEY,
+                    leaseOwner, orderTimeoutProperties.getSweepLeaseSeconds(), TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(leased)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.error("获取超时订单扫描租约失败", e);
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime payBefore = now.minus(DelayConstant.PAY_TIMEOUT_MILLIS, ChronoUnit.MILLIS)
+                    .minusSeconds(orderTimeoutProperties.getPayGraceSeconds());
+            LocalDateTime deliveryBefore = now.minus(DelayConstant.DELIVERY_TIMEOUT_MILLIS, ChronoUnit.MILLIS)
+                    .minusMinutes(orderTimeoutProperties.getDeliveryGraceMinutes());
+
+            int payCancelled = sweep((before, lastTime, lastId, limit) ->
+                            orderMapper.listTimedOut(Orders.PENDING_PAYMENT, before, lastTime, lastId, limit),
+                    Orders::getOrderTime, payBefore, orderTimeoutService::payTimeoutBatch);
+            int deliveryCancelled = sweep(orderMapper::listDeliveryTimedOut,
+                    Orders::getDeliveryStartTime, deliveryBefore, orderTimeoutService::deliveryTimeoutBatch);
+            if (payCancelled > 0 || deliveryCancelled > 0) {
+                // 正常情况下超时订单都由延迟任务处理，扫描到说明有任务丢失
+                log.warn("超时订单扫描完成，取消支付超时订单：{}，取消派送超时订单：{}", payCancelled, deliveryCancelled);
+            }
+        } catch (Exception e) {
+            log.error("超时订单扫描失败", e);
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT,
+                        Collections.singletonList(RedisConstant.ORDER_SWEEP_LEASE_KEY), leaseOwner);
+            } catch (Exception e) {
+                // 释放失败时等租约自然过期
+                log.error("释放超时订单扫描租约失败", e);
+            }
+        }
+    }
+
+    /**
+     * 按计时起点、id向后分批扫描一种超时，每批交给对应的批量取消方法
+     *
+     * @param query  查询计时起点早于 before 的订单
+     * @param timeOf 订单的计时起点，用于定位下一批
+     * @return 取消的订单数
+     */
+    private int sweep(TimedOutQuery query, Function<Orders, LocalDateTime> timeOf, LocalDateTime before,
+                      Function<List<Long>, Integer> cancel) {
+        int batchSize = orderTimeoutProperties.getSweepBatchSize();
+        LocalDateTime lastTime = null;
+        Long lastId = null;
+        int cancelled = 0;
+        for (int i = 0; i < orderTimeoutProperties.getSweepMaxBatches(); i++) {
+            List<Orders> ordersList = query.list(before, lastTime, lastId, batchSize);
+            if (ordersList.isEmpty()) {
+                break;
+            }
+            cancelled += cancel.apply(ordersList.stream().map(Orders::getId).collect(Collectors.toList()));
+
+            Orders last = ordersList.get(ordersList.size() - 1);
+            lastTime = timeOf.apply(last);
+            lastId = last.getId();
+            if (ordersList.size() < batchSize) {
+                break;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * 分批查询超时订单
+     */
+    @FunctionalInterface
+    private interface TimedOutQuery {
+        List<Orders> list(LocalDateTime before, LocalDateTime lastTime, Long lastId, int limit);
+    }
+}
@@ -0,0 +1,146 @@
+package com.sky.Task;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.OrderOutbox;
+import com.sky.mapper.OrderOutboxMapper;
+import com.sky.properties.OutboxProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 发件箱投递任务
+ * 按id顺序认领一批消息，整批发送后统一等待 publisher confirm，确认成功的标记为已投递，失败的放回重试
+ */
+@Component
+@Slf4j
+public class OutboxRelayTask {
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private OutboxProperties outboxProperties;
+    @Autowired
+    @Qualifier("outboxRelayExecutor")
+    private ThreadPoolTaskExecutor outboxRelayExecutor;
+
+    // 当前实例的认领标识
+    private final String owner = UUID.randomUUID().toString();
+    // 同一实例内只允许一个线程在投递
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // 投递过程中又有新消息写入
+    private final AtomicBoolean signal = new AtomicBoolean(false);
+
+    /**
+     * 事务提交后唤醒投递，线程池已有等待中的任务时直接丢弃
+     */
+    public void wakeup() {
+        signal.set(true);
+        outboxRelayExecutor.execute(this::relay);
+    }
+
+    /**
+     * 定时兜底：唤醒丢失、投递失败重试、其它实例宕机遗留的消息
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void relay() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            do {
+                signal.set(false);
+                while (relayBatch() >= outboxProperties.getBatchSize()) {
+                    // 一批满了说明还有积压，继续投递
+                }
+            } while (signal.get());
+        } catch (Exception e) {
+            log.error("发件箱投递异常", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 清理已投递的历史消息，每天凌晨3点执行一次
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void cleanup() {
+        orderOutboxMapper.deleteSentBefore(LocalDateTime.now().minusDays(outboxProperties.getRetainDays()));
+    }
+
+    /**
+     * 投递一批消息
+     *
+     * @return 本批全部投递成功时返回消息数，有失败时返回0，避免在broker异常时空转重试
+     */
+    private int relayBatch() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(outboxProperties.getStaleSeconds());
+        orderOutboxMapper.claim(owner, outboxProperties.getBatchSize(), staleBefore);
+        // 上一轮异常中断遗留的消息也会一并查出
+        List<OrderOutbox> list = orderOutboxMapper.listByOwner(owner);
+        if (list.isEmpty()) {
+            return 0;
+        }
+
+        // 1. 整批发送，不逐条等待确认
+        List<CorrelationData> correlations = new ArrayList<>(list.size());
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (OrderOutbox outbox : list) {
+            CorrelationData correlationData = new CorrelationData(String.valueOf(outbox.getId()));
+            try {
+                Object payload = JSON.parseObject(outbox.getPayload(), Class.forName(outbox.getPayloadType()));
+                rabbitTemplate.convertAndSend(outbox.getExchange(), outbox.getRoutingKey(), payload, correlationData);
+                correlations.add(correlationData);
+            } catch (Exception e) {
+                log.error("发件箱消息发送失败：{}", outbox.getId(), e);
+                failedIds.add(outbox.getId());
+            }
+        }
+
+        // 2. 统一等待 broker 确认，所有消息共用一个超时时间
+        long deadline = System.currentTimeMillis() + outboxProperties.getConfirmTimeoutMillis();
+        for (CorrelationData correlationData : correlations) {
+            Long id = Long.valueOf(correlationData.getId());
+            try {
+                long wait = Math.max(deadline - System.currentTimeMillis(), 0);
+                CorrelationData.Confirm confirm = correlationData.getFuture().get(wait, TimeUnit.MILLISECONDS);
+                // 被退回说明没有路由到任何队列，同样视为失败
+                if (confirm.isAck() && correlationData.getReturned() == null) {
+                    sentIds.add(id);
+                } else {
+                    log.warn("发件箱消息未被确认：{}，原因：{}", id, confirm.getReason());
+                    failedIds.add(id);
+                }
+            } catch (Exception e) {
+                log.warn("等待发件箱消息确认超时：{}", id);
+                failedIds.add(id);
+            }
+        }
+
+        // 3. 批量回写投递结果
+        if (!sentIds.isEmpty()) {
+            orderOutboxMapper.markSent(sentIds);
+        }
+        if (!failedIds.isEmpty()) {
+            orderOutboxMapper.release(failedIds, outboxProperties.getMaxRetry());
+        }
+        log.debug("发件箱投递完成，成功：{}，失败：{}", sentIds.size(), failedIds.size());
+        return failedIds.isEmpty() ? list.size() : 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.Task;
+
+import com.sky.service.PriceCatalogService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class PriceCatalogTask {
+
+    @Autowired
+    private PriceCatalogService priceCatalogService;
+
+    /**
+     * 每5秒检查一次价格目录版本，发现其它实例修改过菜品/套餐时重新加载
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void checkVersion() {
+        try {
+            priceCatalogService.checkVersion();
+        } catch (Exception e) {
+            log.error("检查价格目录版本失败", e);
+        }
+    }
+}
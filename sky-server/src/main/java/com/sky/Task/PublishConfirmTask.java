@@ -0,0 +1,41 @@
+package com.sky.Task;
+
+import com.sky.service.PublishConfirmService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class PublishConfirmTask {
+
+    @Autowired
+    private PublishConfirmService publishConfirmService;
+
+    /**
+     * 每秒重发一次失败和确认超时的消息
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void retry() {
+        try {
+            publishConfirmService.retry();
+        } catch (Exception e) {
+            log.error("重发消息失败", e);
+        }
+    }
+
+    /**
+     * 每分钟输出一次未确认消息数和确认耗时
+     */
+    @Scheduled(fixedRate = 60000)
+    public void report() {
+        int outstanding = publishConfirmService.getOutstanding();
+        if (outstanding > 0) {
+            log.warn("消息发送确认：未确认 {} 条，平均确认耗时 {}ms", outstanding,
+                    String.format("%.1f", publishConfirmService.getLatencyMillis()));
+        } else {
+            log.debug("消息发送确认：平均确认耗时 {}ms", String.format("%.1f", publishConfirmService.getLatencyMillis()));
+        }
+    }
+}
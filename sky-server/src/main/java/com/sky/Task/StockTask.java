@@ -0,0 +1,28 @@
+package com.sky.Task;
+
+import com.sky.service.StockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class StockTask {
+
+    @Autowired
+    private StockService stockService;
+
+    /**
+     * 库存对账
+     * 每分钟把 Redis 中的实时库存回写到数据库，Redis 中丢失的库存用数据库恢复
+     */
+    @Scheduled(cron = "0 0/1 * * * ?")
+    public void reconcile() {
+        try {
+            stockService.reconcile();
+        } catch (Exception e) {
+            log.error("库存对账失败", e);
+        }
+    }
+}
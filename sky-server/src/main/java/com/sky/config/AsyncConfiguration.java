@@ -0,0 +1,50 @@
+package com.sky.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步任务配置类
+ */
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfiguration {
+
+    /**
+     * 地址解析线程池
+     * 队列满时直接丢弃，由定时补偿任务兜底回填
+     */
+    @Bean
+    public ThreadPoolTaskExecutor geocodeExecutor() {
+        log.info("开始创建地址解析线程池...");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("geocode-");
+        executor.setRejectedExecutionHandler((r, e) -> log.warn("地址解析队列已满，等待定时任务补偿"));
+        return executor;
+    }
+
+    /**
+     * 发件箱投递线程池
+     * 只需一个线程投递，已有等待中的任务时丢弃新的唤醒，等待中的任务会一并投递新消息
+     */
+    @Bean
+    public ThreadPoolTaskExecutor outboxRelayExecutor() {
+        log.info("开始创建发件箱投递线程池...");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("outbox-relay-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        return executor;
+    }
+}
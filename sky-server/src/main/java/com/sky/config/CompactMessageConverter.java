@@ -0,0 +1,93 @@
+package com.sky.config;
+
+import com.alibaba.fastjson.JSON;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * 紧凑的消息转换器，替换默认的 Java 序列化
+ * 订单id（Long/Integer）编码为8字节大端整数；字符串（WebSocket 推送、支付通知等已是JSON字符串）直接按UTF-8编码；
+ * 其它对象按JSON编码，并在消息头中记录类型
+ * 升级前写入、仍停留在延迟队列中的 Java 序列化消息按原方式解码
+ */
+public class CompactMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE_LONG = "application/x-long";
+    // JSON 消息体对应的Java类型
+    public static final String TYPE_HEADER = "x-payload-type";
+    // 只允许反序列化为本项目的类型
+    private static final String TYPE_PREFIX = "com.sky.";
+
+    private final SimpleMessageConverter legacyConverter = new SimpleMessageConverter();
+
+    public CompactMessageConverter() {
+        // 历史消息只有 Long/String 两种
+        legacyConverter.setAllowedListPatterns(Collections.singletonList("java.lang.*"));
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        byte[] body;
+        if (object instanceof Long || object instanceof Integer) {
+            body = ByteBuffer.allocate(Long.BYTES).putLong(((Number) object).longValue()).array();
+            messageProperties.setContentType(CONTENT_TYPE_LONG);
+        } else if (object instanceof String) {
+            body = ((String) object).getBytes(StandardCharsets.UTF_8);
+            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+            messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+        } else if (object instanceof byte[]) {
+            body = (byte[]) object;
+            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_BYTES);
+        } else {
+            body = JSON.toJSONBytes(object);
+            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+            messageProperties.setHeader(TYPE_HEADER, object.getClass().getName());
+        }
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties messageProperties = message.getMessageProperties();
+        String contentType = messageProperties.getContentType();
+        byte[] body = message.getBody();
+
+        if (CONTENT_TYPE_LONG.equals(contentType)) {
+            if (body.length != Long.BYTES) {
+                throw new MessageConversionException("订单id消息长度错误：" + body.length);
+            }
+            return ByteBuffer.wrap(body).getLong();
+        }
+        if (contentType != null && contentType.startsWith("text")) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        if (MessageProperties.CONTENT_TYPE_JSON.equals(contentType)) {
+            String json = new String(body, StandardCharsets.UTF_8);
+            Object type = messageProperties.getHeaders().get(TYPE_HEADER);
+            if (type == null) {
+                return JSON.parse(json);
+            }
+            if (!type.toString().startsWith(TYPE_PREFIX)) {
+                throw new MessageConversionException("不允许的消息类型：" + type);
+            }
+            try {
+                return JSON.parseObject(json, Class.forName(type.toString()));
+            } catch (ClassNotFoundException e) {
+                throw new MessageConversionException("未知的消息类型：" + type, e);
+            }
+        }
+        if (MessageProperties.CONTENT_TYPE_BYTES.equals(contentType)) {
+            return body;
+        }
+        return legacyConverter.fromMessage(message);
+    }
+}
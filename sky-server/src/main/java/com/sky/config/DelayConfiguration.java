@@ -0,0 +1,62 @@
+package com.sky.config;
+
+import com.sky.constant.DelayConstant;
+import com.sky.properties.DelayProperties;
+import com.sky.service.DelayScheduler;
+import com.sky.service.DelayStore;
+import com.sky.service.OrderTimeoutService;
+import com.sky.service.OutboxService;
+import com.sky.service.impl.MemoryDelayStore;
+import com.sky.service.impl.RabbitDelayScheduler;
+import com.sky.service.impl.RedisDelayStore;
+import com.sky.service.impl.ZSetDelayScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 延迟任务配置类
+ * sky.delay.type 为 rabbit（默认）时使用固定TTL队列，为 redis/memory 时使用有序集合
+ */
+@Configuration
+@Slf4j
+public class DelayConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.delay", name = "type", havingValue = "rabbit", matchIfMissing = true)
+    public DelayScheduler rabbitDelayScheduler(OutboxService outboxService) {
+        log.info("延迟任务使用 RabbitMQ 固定TTL队列");
+        return new RabbitDelayScheduler(outboxService);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.delay", name = "type", havingValue = "redis")
+    public DelayStore redisDelayStore(StringRedisTemplate stringRedisTemplate) {
+        log.info("延迟任务使用 Redis 有序集合");
+        return new RedisDelayStore(stringRedisTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.delay", name = "type", havingValue = "memory")
+    public DelayStore memoryDelayStore() {
+        log.info("延迟任务使用进程内存储，仅限单实例调试");
+        return new MemoryDelayStore();
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${sky.delay.type:rabbit}' != 'rabbit'")
+    public ZSetDelayScheduler zSetDelayScheduler(DelayStore delayStore, DelayProperties delayProperties,
+                                                 OrderTimeoutService orderTimeoutService) {
+        Map<String, Consumer<Long>> handlers = new LinkedHashMap<>();
+        handlers.put(DelayConstant.PAY_TIMEOUT, orderTimeoutService::payTimeout);
+        handlers.put(DelayConstant.DELIVERY_TIMEOUT, orderTimeoutService::deliveryTimeout);
+        return new ZSetDelayScheduler(delayStore, delayProperties, handlers);
+    }
+}
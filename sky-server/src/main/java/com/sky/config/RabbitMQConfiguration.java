@@ -1,12 +1,26 @@
 package com.sky.config;
 
+import com.sky.properties.OrderTimeoutProperties;
+import com.sky.properties.PayNotifyProperties;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfiguration {
 
+    /**
+     * 消息转换器，RabbitTemplate 和所有监听容器共用
+     */
+    @Bean
+    public MessageConverter messageConverter() {
+        return new CompactMessageConverter();
+    }
+
     // ==========================================
     // 1. 声明普通的交换机和死信交换机
     // ==========================================
@@ -197,4 +211,117 @@ public class RabbitMQConfiguration {
         // Fanout 交换机不需要 RoutingKey，所以没有 .with("xxx")
         return BindingBuilder.bind(webSocketAnonymousQueue).to(webSocketFanoutExchange);
     }
-}
\ No newline at end of file
+
+    // ==========================================
+    // 6. 异步下单队列（削峰）
+    // ==========================================
+
+    /**
+     * 下单队列：高峰期下单请求先进入这里，由固定数量的消费者写库
+     */
+    @Bean
+    public Queue intakeQueue() {
+        return QueueBuilder.durable("order.intake.queue").build();
+    }
+
+    @Bean
+    public Binding intakeBinding() {
+        return BindingBuilder.bind(intakeQueue()).to(orderDirectExchange()).with("order.intake");
+    }
+
+    // ==========================================
+    // 7. 支付成功通知队列（快速应答）
+    // ==========================================
+
+    /**
+     * 支付通知队列：回调线程只负责入队，由专门的消费者批量修改订单状态
+     * 被拒绝的消息转入死信队列，不会重新入队反复失败
+     * 注：已存在的队列参数不同会声明失败，上线前需先删除旧队列（或改用 policy 配置死信）
+     */
+    @Bean
+    public Queue payNotifyQueue() {
+        return QueueBuilder.durable("pay.notify.queue")
+                .deadLetterExchange("order.dlx")
+                .deadLetterRoutingKey("pay.notify.dead")
+                .build();
+    }
+
+    @Bean
+    public Binding payNotifyBinding() {
+        return BindingBuilder.bind(payNotifyQueue()).to(orderDirectExchange()).with("pay.notify");
+    }
+
+    /**
+     * 支付通知死信队列：处理失败的通知停放在这里，排查后人工重放，没有消费者
+     */
+    @Bean
+    public Queue payNotifyDeadQueue() {
+        return QueueBuilder.durable("pay.notify.dlq").build();
+    }
+
+    @Bean
+    public Binding payNotifyDeadBinding() {
+        return BindingBuilder.bind(payNotifyDeadQueue()).to(orderDlxExchange()).with("pay.notify.dead");
+    }
+
+    /**
+     * 支付通知专用的批量消费容器：攒够一批或等待超时后一次性交给监听方法
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory payNotifyContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                          ConnectionFactory connectionFactory,
+                                                                          PayNotifyProperties payNotifyProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(payNotifyProperties.getConcurrency());
+        factory.setMaxConcurrentConsumers(payNotifyProperties.getConcurrency());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(payNotifyProperties.getBatchSize());
+        factory.setReceiveTimeout(payNotifyProperties.getBatchTimeoutMillis());
+        // 预取数量不小于批大小，否则一批永远凑不满
+        factory.setPrefetchCount(payNotifyProperties.getBatchSize());
+        // 处理失败的整批消息转入死信队列，不重新入队
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    // ==========================================
+    // 8. 订单超时处理（批量消费）
+    // ==========================================
+
+    /**
+     * 订单超时死信队列：多次处理仍失败的订单id停放在这里，排查后人工重放，没有消费者
+     * 兜底扫描同样会处理这些订单
+     */
+    @Bean
+    public Queue orderTimeoutDeadQueue() {
+        return QueueBuilder.durable("order.timeout.dlq").build();
+    }
+
+    @Bean
+    public Binding orderTimeoutDeadBinding() {
+        return BindingBuilder.bind(orderTimeoutDeadQueue()).to(orderDlxExchange()).with("order.timeout.dead");
+    }
+
+    /**
+     * 订单超时队列专用的批量消费容器：攒够一批或等待超时后一次性交给监听方法，整批处理完后手动确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory orderTimeoutContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                             ConnectionFactory connectionFactory,
+                                                                             OrderTimeoutProperties orderTimeoutProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(orderTimeoutProperties.getConcurrency());
+        factory.setMaxConcurrentConsumers(orderTimeoutProperties.getConcurrency());
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(orderTimeoutProperties.getBatchSize());
+        factory.setReceiveTimeout(orderTimeoutProperties.getBatchTimeoutMillis());
+        // 预取数量不小于批大小，否则一批永远凑不满
+        factory.setPrefetchCount(orderTimeoutProperties.getBatchSize());
+        return factory;
+    }
+}
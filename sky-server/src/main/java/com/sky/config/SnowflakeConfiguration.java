@@ -0,0 +1,165 @@
+package com.sky.config;
+
+import com.sky.constant.RedisConstant;
+import com.sky.properties.SnowflakeProperties;
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器配置类
+ * 配置了机器号就直接使用；否则从Redis租用一个空闲机器号，由单独的线程定时续约，不与其它定时任务抢占调度线程
+ * 生成器只在租约有效期内生成订单号，有效期按发起租用/续约的时间计算并预留一个续约周期的余量，
+ * 早于Redis中租约的实际过期时间，与Redis断连时在其它实例能够占用同一机器号之前就停止生成；
+ * 租约丢失时暂停生成，重新租到空闲机器号后再恢复
+ */
+@Configuration
+@Slf4j
+public class SnowflakeConfiguration {
+
+    // 只有仍然持有租约时才续约
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('expire', KEYS[1], ARGV[2]) " +
+                    "else return 0 end", Long.class);
+
+    // 只释放自己持有的租约
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) " +
+                    "else return 0 end", Long.class);
+
+    @Autowired
+    private SnowflakeProperties snowflakeProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 当前实例的租约标识
+    private final String leaseOwner = UUID.randomUUID().toString();
+    // 租用到的机器号，未租用时为null
+    private volatile String leaseKey;
+    // 续约线程，未租用机器号时为null
+    private ScheduledExecutorService renewExecutor;
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator() {
+        long workerId = snowflakeProperties.getWorkerId();
+        if (workerId >= 0) {
+            log.info("开始创建订单号生成器，机器号：{}", workerId);
+            return new SnowflakeIdGenerator(snowflakeProperties.getEpoch(), workerId, snowflakeProperties.getMaxBackwardMillis());
+        }
+
+        long leaseStart = System.currentTimeMillis();
+        Long leased = leaseWorkerId();
+        if (leased == null) {
+            throw new IllegalStateException("没有空闲的雪花算法机器号");
+        }
+        log.info("开始创建订单号生成器，机器号：{}", leased);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(snowflakeProperties.getEpoch(), leased,
+                snowflakeProperties.getMaxBackwardMillis());
+        generator.renew(leaseUntil(leaseStart));
+
+        // 每1/3租期续约一次
+        long period = renewPeriod();
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snowflake-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewExecutor.scheduleWithFixedDelay(() -> renewWorkerId(generator), period, period, TimeUnit.MILLISECONDS);
+        return generator;
+    }
+
+    /**
+     * 从随机位置开始依次尝试 SETNX，拿到第一个空闲的机器号
+     *
+     * @return 机器号，没有空闲的机器号时为null
+     */
+    private Long leaseWorkerId() {
+        long start = ThreadLocalRandom.current().nextLong(SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+        for (long i = 0; i <= SnowflakeIdGenerator.MAX_WORKER_ID; i++) {
+            long workerId = (start + i) % (SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+            String key = RedisConstant.SNOWFLAKE_WORKER_KEY + workerId;
+            Boolean success = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(key, leaseOwner, snowflakeProperties.getLeaseSeconds(), TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(success)) {
+                leaseKey = key;
+                return workerId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 续约机器号
+     * 续约失败时暂停生成：租约已被其它实例占用时继续使用原机器号会生成重复的订单号；
+     * 与Redis断连时不延长有效期，到期后生成器自行拒绝生成
+     */
+    private void renewWorkerId(SnowflakeIdGenerator generator) {
+        long renewStart = System.currentTimeMillis();
+        try {
+            if (generator.getWorkerId() < 0) {
+                // 已暂停，重新租用一个空闲机器号后恢复
+                Long workerId = leaseWorkerId();
+                if (workerId == null) {
+                    log.error("没有空闲的雪花算法机器号，订单号生成仍处于暂停状态");
+                    return;
+                }
+                generator.resume(workerId, leaseUntil(renewStart));
+                log.warn("重新租用雪花算法机器号：{}，恢复生成订单号", workerId);
+                return;
+            }
+
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(leaseKey),
+                    leaseOwner, String.valueOf(snowflakeProperties.getLeaseSeconds()));
+            if (renewed != null && renewed == 1) {
+                generator.renew(leaseUntil(renewStart));
+                return;
+            }
+            // 租约已过期（例如与Redis长时间断连），其它实例可能已经占用了同一个机器号
+            generator.suspend();
+            log.error("雪花算法机器号租约丢失：{}，暂停生成订单号", leaseKey);
+        } catch (Exception e) {
+            // 有效期不延长，到期后生成器拒绝生成；恢复连接后续约成功或重新租用
+            log.error("雪花算法机器号续约失败：{}", leaseKey, e);
+        }
+    }
+
+    /**
+     * 续约周期：1/3租期
+     */
+    private long renewPeriod() {
+        return TimeUnit.SECONDS.toMillis(snowflakeProperties.getLeaseSeconds()) / 3;
+    }
+
+    /**
+     * 生成器的有效期：从发起租用/续约的时间算起，租期减去一个续约周期
+     *
+     * @param start 发起租用/续约的时间（毫秒）
+     */
+    private long leaseUntil(long start) {
+        return start + TimeUnit.SECONDS.toMillis(snowflakeProperties.getLeaseSeconds()) - renewPeriod();
+    }
+
+    @PreDestroy
+    public void releaseWorkerId() {
+        if (renewExecutor != null) {
+            renewExecutor.shutdownNow();
+        }
+        if (leaseKey != null) {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), leaseOwner);
+        }
+    }
+}
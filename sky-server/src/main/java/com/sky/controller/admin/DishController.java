@@ -7,6 +7,7 @@ import com.sky.entity.Dish;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.DishService;
+import com.sky.service.StockService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,8 @@ import java.util.List;
 public class DishController {
     @Autowired
     private DishService dishService;
+    @Autowired
+    private StockService stockService;
 
     @PostMapping
     @ApiOperation("新增菜品")
@@ -107,4 +110,18 @@ public class DishController {
         List<Dish> list = dishService.list(categoryId);
         return Result.success(list);
     }
+
+    /**
+     * 设置菜品库存
+     * @param id
+     * @param stock 不传表示不限量
+     * @return
+     */
+    @PutMapping("/stock")
+    @ApiOperation("设置菜品库存")
+    public Result setStock(Long id, @RequestParam(required = false) Integer stock) {
+        log.info("设置菜品库存：{}，{}", id, stock);
+        stockService.setDishStock(id, stock);
+        return Result.success();
+    }
 }
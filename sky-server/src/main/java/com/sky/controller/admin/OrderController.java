@@ -1,9 +1,11 @@
 package com.sky.controller.admin;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
+import com.sky.vo.OrderBatchResultVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderSubmitVO;
@@ -14,6 +16,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController("adminOrderController") // 注意给个别名，防止和 user 端的 OrderController 冲突
 @RequestMapping("admin/order")
 @Api(tags = "订单接口-后台管理")
@@ -37,6 +41,19 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 游标分页搜索查询订单，翻页时传入上一页返回的游标
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    @GetMapping("/conditionSearch/cursor")
+    @ApiOperation("游标分页搜索查询订单")
+    public Result<CursorPageResult> cursorPage(OrdersPageQueryDTO ordersPageQueryDTO) {
+        log.info("游标分页搜索查询订单：{}", ordersPageQueryDTO);
+        CursorPageResult cursorPageResult = orderService.cursorQuery(ordersPageQueryDTO);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 统计各个状态的订单数量
      * @return
@@ -122,4 +139,52 @@ public class OrderController {
         orderService.complete(id);
         return Result.success();
     }
+
+    /**
+     * 批量接单
+     *
+     * @return
+     */
+    @PutMapping("/batch/confirm")
+    @ApiOperation("批量接单")
+    public Result<List<OrderBatchResultVO>> confirmBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("批量接单：{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.confirmBatch(ordersBatchDTO.getIds()));
+    }
+
+    /**
+     * 批量派送
+     *
+     * @return
+     */
+    @PutMapping("/batch/delivery")
+    @ApiOperation("批量派送")
+    public Result<List<OrderBatchResultVO>> deliveryBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("批量派送：{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.deliveryBatch(ordersBatchDTO.getIds()));
+    }
+
+    /**
+     * 批量完成
+     *
+     * @return
+     */
+    @PutMapping("/batch/complete")
+    @ApiOperation("批量完成")
+    public Result<List<OrderBatchResultVO>> completeBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("批量完成：{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.completeBatch(ordersBatchDTO.getIds()));
+    }
+
+    /**
+     * 批量取消
+     *
+     * @return
+     */
+    @PutMapping("/batch/cancel")
+    @ApiOperation("批量取消")
+    public Result<List<OrderBatchResultVO>> cancelBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("批量取消：{}", ordersBatchDTO);
+        return Result.success(orderService.cancelBatch(ordersBatchDTO));
+    }
 }
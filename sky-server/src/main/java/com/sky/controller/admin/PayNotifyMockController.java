@@ -0,0 +1,174 @@
+package com.sky.controller.admin;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.WeChatProperties;
+import com.sky.result.Result;
+import com.sky.utils.HttpClientUtil;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 本地模拟微信支付通知，用于离线压测支付回调链路
+ * 按微信的报文格式用 APIv3 密钥加密后，并发请求本机的 /notify/paySuccess
+ */
+@RestController
+@RequestMapping("/admin/mock/payNotify")
+@Api(tags = "模拟支付通知接口")
+@ConditionalOnProperty(prefix = "sky.pay-notify", name = "mock-enabled", havingValue = "true")
+@Slf4j
+public class PayNotifyMockController {
+
+    private static final String NONCE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    @Autowired
+    private WeChatProperties weChatProperties;
+    @Value("${server.port:8080}")
+    private int port;
+
+    /**
+     * 对指定订单发送模拟支付成功通知
+     *
+     * @param orderNumbers 订单号，逗号分隔
+     * @param repeat       每个订单重复通知的次数，模拟微信重试
+     * @param concurrency  并发请求数
+     * @return
+     */
+    @PostMapping
+    @ApiOperation("发送模拟支付成功通知")
+    public Result<String> send(@RequestParam List<String> orderNumbers,
+                               @RequestParam(defaultValue = "1") Integer repeat,
+                               @RequestParam(defaultValue = "10") Integer concurrency) throws Exception {
+        String url = "http://localhost:" + port + "/notify/paySuccess";
+
+        // 同一个订单的重复通知使用同一个交易号
+        List<String> bodies = new ArrayList<>();
+        for (String orderNumber : orderNumbers) {
+            String body = buildNotifyBody(orderNumber, "4200" + System.currentTimeMillis() + ThreadLocalRandom.current().nextInt(10000));
+            for (int i = 0; i < repeat; i++) {
+                bodies.add(body);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<Long>> futures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        try {
+            for (String body : bodies) {
+                futures.add(executor.submit(() -> post(url, body)));
+            }
+            int success = 0;
+            long maxMillis = 0;
+            long totalMillis = 0;
+            for (Future<Long> future : futures) {
+                long millis = future.get();
+                if (millis >= 0) {
+                    success++;
+                    totalMillis += millis;
+                    maxMillis = Math.max(maxMillis, millis);
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            String summary = String.format("通知总数：%d，成功：%d，总耗时：%dms，平均应答：%dms，最长应答：%dms",
+                    bodies.size(), success, elapsed, success == 0 ? 0 : totalMillis / success, maxMillis);
+            log.info("模拟支付通知完成，{}", summary);
+            return Result.success(summary);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 发送一次通知，返回应答耗时（毫秒），失败返回-1
+     */
+    private long post(String url, String body) {
+        long start = System.currentTimeMillis();
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = HttpClientUtil.getHttpClientPool().getHttpClient().execute(httpPost)) {
+            EntityUtils.consume(response.getEntity());
+            if (response.getStatusLine().getStatusCode() != 200) {
+                return -1;
+            }
+            return System.currentTimeMillis() - start;
+        } catch (Exception e) {
+            log.error("模拟支付通知发送失败", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 按微信支付通知格式构造报文：resource 使用 AEAD_AES_256_GCM 加密
+     */
+    private String buildNotifyBody(String orderNumber, String transactionId) throws Exception {
+        JSONObject transaction = new JSONObject();
+        transaction.put("mchid", weChatProperties.getMchid());
+        transaction.put("appid", weChatProperties.getAppid());
+        transaction.put("out_trade_no", orderNumber);
+        transaction.put("transaction_id", transactionId);
+        transaction.put("trade_type", "JSAPI");
+        transaction.put("trade_state", "SUCCESS");
+        transaction.put("trade_state_desc", "支付成功");
+        transaction.put("success_time", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+
+        String associatedData = "transaction";
+        String nonce = randomNonce();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        SecretKeySpec key = new SecretKeySpec(weChatProperties.getApiV3Key().getBytes(StandardCharsets.UTF_8), "AES");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+        String ciphertext = Base64.getEncoder().encodeToString(
+                cipher.doFinal(transaction.toJSONString().getBytes(StandardCharsets.UTF_8)));
+
+        JSONObject resource = new JSONObject();
+        resource.put("algorithm", "AEAD_AES_256_GCM");
+        resource.put("ciphertext", ciphertext);
+        resource.put("associated_data", associatedData);
+        resource.put("nonce", nonce);
+        resource.put("original_type", "transaction");
+
+        JSONObject body = new JSONObject();
+        body.put("id", UUID.randomUUID().toString());
+        body.put("create_time", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        body.put("resource_type", "encrypt-resource");
+        body.put("event_type", "TRANSACTION.SUCCESS");
+        body.put("summary", "支付成功");
+        body.put("resource", resource);
+        return body.toJSONString();
+    }
+
+    private String randomNonce() {
+        StringBuilder nonce = new StringBuilder(12);
+        for (int i = 0; i < 12; i++) {
+            nonce.append(NONCE_CHARS.charAt(ThreadLocalRandom.current().nextInt(NONCE_CHARS.length())));
+        }
+        return nonce.toString();
+    }
+}
@@ -5,6 +5,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.SetmealService;
+import com.sky.service.StockService;
 import com.sky.vo.SetmealVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -22,6 +23,8 @@ public class SetmealController {
 
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private StockService stockService;
 
     /**
      * 新增套餐
@@ -97,4 +100,18 @@ public class SetmealController {
         setmealService.startOrStop(status, id);
         return Result.success();
     }
-}
\ No newline at end of file
+
+    /**
+     * 设置套餐库存
+     * @param id
+     * @param stock 不传表示不限量
+     * @return
+     */
+    @PutMapping("/stock")
+    @ApiOperation("设置套餐库存")
+    public Result setStock(Long id, @RequestParam(required = false) Integer stock) {
+        log.info("设置套餐库存：{}，{}", id, stock);
+        stockService.setSetmealStock(id, stock);
+        return Result.success();
+    }
+}
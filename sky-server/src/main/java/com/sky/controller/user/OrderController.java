@@ -9,10 +9,14 @@ import com.sky.entity.OrderDetail;
 import com.sky.entity.ShoppingCart;
 import com.sky.mapper.OrderDetailMapper;
 import com.sky.mapper.ShoppingCartMapper;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.service.OrderIntakeService;
 import com.sky.service.OrderService;
 import com.sky.service.ShoppingCartService;
+import com.sky.service.SubmitTokenService;
+import com.sky.vo.OrderIntakeVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
@@ -39,8 +43,22 @@ public class OrderController {
     @Autowired
     private ShoppingCartService shoppingCartService;
     @Autowired
+    private SubmitTokenService submitTokenService;
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+    @Autowired
     private OrderDetailMapper orderDetailMapper;
 
+    /**
+     * 获取下单令牌
+     * @return
+     */
+    @GetMapping("/submitToken")
+    @ApiOperation("获取下单令牌")
+    public Result<String> submitToken() {
+        return Result.success(submitTokenService.createToken());
+    }
+
     /**
      * 用户下单
      * @param ordersSubmitDTO
@@ -49,10 +67,21 @@ public class OrderController {
     @PostMapping("/submit")
     public Result<OrderSubmitVO> submit(@RequestBody OrdersSubmitDTO ordersSubmitDTO) {
         log.info("用户下单：{}", ordersSubmitDTO);
-        OrderSubmitVO orderSubmitVO = orderService.submit(ordersSubmitDTO);
+        OrderSubmitVO orderSubmitVO = submitTokenService.submit(ordersSubmitDTO);
         return Result.success(orderSubmitVO);
     }
 
+    /**
+     * 查询异步下单结果
+     * @param ticket 下单接口返回的订单号
+     * @return
+     */
+    @GetMapping("/intake/{ticket}")
+    @ApiOperation("查询异步下单结果")
+    public Result<OrderIntakeVO> intakeResult(@PathVariable String ticket) {
+        return Result.success(orderIntakeService.getResult(ticket));
+    }
+
     /**
      * 订单支付
      *
@@ -97,6 +126,21 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 历史订单游标分页查询，翻页时传入上一页返回的游标
+     *
+     * @param cursor   上一页返回的游标，第一页不传
+     * @param pageSize
+     * @param status   订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+     * @return
+     */
+    @GetMapping("/historyOrders/cursor")
+    @ApiOperation("历史订单游标分页查询")
+    public Result<CursorPageResult> cursorPage(String cursor, int pageSize, Integer status) {
+        CursorPageResult cursorPageResult = orderService.cursorQuery4User(cursor, pageSize, status);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 查询订单详情
      *
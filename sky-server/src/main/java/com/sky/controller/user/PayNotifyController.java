@@ -4,7 +4,7 @@ import com.alibaba.druid.support.json.JSONUtils;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.sky.properties.WeChatProperties;
-import com.sky.service.OrderService;
+import com.sky.service.PayNotifyService;
 import com.wechat.pay.contrib.apache.httpclient.util.AesUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.entity.ContentType;
@@ -25,7 +25,7 @@ import java.util.HashMap;
 @Slf4j
 public class PayNotifyController {
     @Autowired
-    private OrderService orderService;
+    private PayNotifyService payNotifyService;
     @Autowired
     private WeChatProperties weChatProperties;
 
@@ -51,8 +51,8 @@ public class PayNotifyController {
         log.info("商户平台订单号：{}", outTradeNo);
         log.info("微信支付交易号：{}", transactionId);
 
-        //业务处理，修改订单状态、来单提醒
-        orderService.paySuccess(outTradeNo);
+        //业务处理：快速应答模式下只入队，由消费者批量修改订单状态、来单提醒
+        payNotifyService.accept(outTradeNo, transactionId);
 
         //给微信响应
         responseToWeixin(response);
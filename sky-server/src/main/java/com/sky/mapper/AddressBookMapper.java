@@ -2,6 +2,8 @@ package com.sky.mapper;
 
 import com.sky.entity.AddressBook;
 import org.apache.ibatis.annotations.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -23,6 +25,7 @@ public interface AddressBookMapper {
             "         district_name, detail, label, is_default)" +
             "        values (#{userId}, #{consignee}, #{phone}, #{sex}, #{provinceCode}, #{provinceName}, #{cityCode}, #{cityName}," +
             "                #{districtCode}, #{districtName}, #{detail}, #{label}, #{isDefault})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(AddressBook addressBook);
 
     /**
@@ -53,4 +56,41 @@ public interface AddressBookMapper {
     @Delete("delete from address_book where id = #{id}")
     void deleteById(Long id);
 
+    /**
+     * 回填地址经纬度，省/市/区/详细地址任一部分在解析期间被修改过则不回填
+     * @param addressBook 解析时的地址
+     * @param lat
+     * @param lng
+     */
+    @Update("update address_book set lat = #{lat}, lng = #{lng}, geocode_fail_count = 0, geocode_retry_time = null " +
+            "where id = #{addressBook.id} and province_name <=> #{addressBook.provinceName} " +
+            "and city_name <=> #{addressBook.cityName} and district_name <=> #{addressBook.districtName} " +
+            "and detail = #{addressBook.detail}")
+    void updateCoordinate(AddressBook addressBook, BigDecimal lat, BigDecimal lng);
+
+    /**
+     * 记录一次解析失败，按失败次数指数退避：10分钟、20分钟、40分钟……最长1天
+     * 先用旧的失败次数计算重试时间，再累加失败次数
+     * @param id
+     * @param now
+     */
+    @Update("update address_book set " +
+            "geocode_retry_time = date_add(#{now}, interval least(10 * pow(2, geocode_fail_count), 1440) minute), " +
+            "geocode_fail_count = geocode_fail_count + 1 where id = #{id}")
+    void markGeocodeFailed(Long id, LocalDateTime now);
+
+    /**
+     * 按id顺序查询尚未解析经纬度、已到重试时间且失败次数未超限的地址
+     * @param lastId 上一批最后一条地址的id，第一批为0
+     * @param now
+     * @param maxFailCount
+     * @param limit
+     * @return
+     */
+    @Select("select * from address_book where lat is null and id > #{lastId} " +
+            "and geocode_fail_count < #{maxFailCount} " +
+            "and (geocode_retry_time is null or geocode_retry_time <= #{now}) " +
+            "order by id limit #{limit}")
+    List<AddressBook> listWithoutCoordinate(long lastId, LocalDateTime now, int maxFailCount, int limit);
+
 }
@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 import java.util.Map;
@@ -82,4 +83,19 @@ public interface DishMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 查询限量菜品的库存
+     * @return
+     */
+    @Select("select id, stock from dish where stock is not null")
+    List<Dish> listWithStock();
+
+    /**
+     * 修改菜品库存，null表示不限量
+     * @param id
+     * @param stock
+     */
+    @Update("update dish set stock = #{stock} where id = #{id}")
+    void updateStock(Long id, Integer stock);
+
 }
@@ -15,6 +15,13 @@ public interface OrderDetailMapper {
      */
     List<OrderDetail> listByOrderId(Long orderId);
 
+    /**
+     * 根据多个订单id批量查询订单详情
+     * @param orderIds 订单id列表
+     * @return 订单详情列表
+     */
+    List<OrderDetail> listByOrderIds(List<Long> orderIds);
+
     /**
      * 批量插入订单详情
      * @param orderDetails 订单详情列表
@@ -2,13 +2,16 @@ package com.sky.mapper;
 
 import com.github.pagehelper.Page;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.dto.TurnoverStatDTO;
 import com.sky.entity.OrderDetail;
+import com.sky.entity.OrderTransition;
 import com.sky.entity.Orders;
 import com.sky.vo.OrderStatisticsVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,6 +39,102 @@ public interface OrderMapper {
     @Select("select * from orders where number = #{orderNumber}")
     Orders getByNumber(String orderNumber);
 
+    /**
+     * 支付成功：只有待付款的订单才会被修改，重复通知时影响行数为0
+     * @param orderNumber
+     * @param checkoutTime
+     * @return 影响行数
+     */
+    // status 1待付款 2待接单，pay_status 1已支付
+    @Update("update orders set status = 2, pay_status = 1, checkout_time = #{checkoutTime} " +
+            "where number = #{orderNumber} and status = 1")
+    int paySuccessByNumber(String orderNumber, LocalDateTime checkoutTime);
+
+    /**
+     * 按状态流转表修改订单状态，只有当前状态在允许的起始状态中才会修改
+     * 同时写入 orders 中非空的取消原因、拒单原因、取消时间、送达时间
+     * @param orders
+     * @param transition
+     * @return 影响行数，0表示订单不存在或状态不允许
+     */
+    int transit(Orders orders, OrderTransition transition);
+
+    /**
+     * 按状态流转表批量修改订单状态，只修改当前状态允许流转的订单
+     * @param ids
+     * @param orders 需要一并写入的取消原因、取消时间、送达时间
+     * @param transition
+     * @return 影响行数
+     */
+    int transitBatch(List<Long> ids, Orders orders, OrderTransition transition);
+
+    /**
+     * 根据id批量查询订单并加行锁
+     * @param ids
+     * @return
+     */
+    List<Orders> listByIdsForUpdate(List<Long> ids);
+
+    /**
+     * 从给定id中筛选出仍处于指定状态的订单id
+     * @param ids
+     * @param status
+     * @return
+     */
+    List<Long> listIdsByStatus(List<Long> ids, Integer status);
+
+    /**
+     * 按下单时间、id顺序查询指定状态且下单时间早于 before 的订单，从 (lastOrderTime, lastId) 之后继续
+     * @param status
+     * @param before
+     * @param lastOrderTime 第一批为null
+     * @param lastId 第一批为null
+     * @param limit
+     * @return
+     */
+    List<Orders> listTimedOut(Integer status, LocalDateTime before, LocalDateTime lastOrderTime, Long lastId, int limit);
+
+    /**
+     * 按开始派送时间、id顺序查询开始派送时间早于 before 且仍在派送中的订单，从 (lastStartTime, lastId) 之后继续
+     * @param before
+     * @param lastStartTime 第一批为null
+     * @param lastId 第一批为null
+     * @param limit
+     * @return
+     */
+    List<Orders> listDeliveryTimedOut(LocalDateTime before, LocalDateTime lastStartTime, Long lastId, int limit);
+
+    /**
+     * 根据订单号批量查询待付款订单并加行锁
+     * @param numbers
+     * @return
+     */
+    List<Orders> listPendingByNumbersForUpdate(List<String> numbers);
+
+    /**
+     * 批量支付成功：只修改仍为待付款的订单
+     * @param ids
+     * @param checkoutTime
+     * @return
+     */
+    int paySuccessByIds(List<Long> ids, LocalDateTime checkoutTime);
+
+    /**
+     * 根据订单号批量查询已取消且未支付的订单并加行锁
+     * 这些订单（例如支付超时已自动取消）随后才收到支付成功通知，需要退款
+     * @param numbers
+     * @return
+     */
+    List<Orders> listCancelledUnpaidByNumbersForUpdate(List<String> numbers);
+
+    /**
+     * 已取消后才支付成功的订单：记录支付时间并标记为退款，只修改仍为已取消、未支付的订单
+     * @param ids
+     * @param checkoutTime
+     * @return 影响行数
+     */
+    int refundCancelledByIds(List<Long> ids, LocalDateTime checkoutTime);
+
     /**
      * 分页查询订单
      * @param ordersPageQueryDTO
@@ -43,6 +142,45 @@ public interface OrderMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 游标分页查询订单，按下单时间、id倒序，最多返回 pageSize + 1 条
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    List<Orders> pageQueryByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 按状态统计订单数量
+     * @param begin 下单时间下限，为空时统计全部订单
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(LocalDateTime begin);
+
+    /**
+     * 查询所有未结束订单的状态和下单时间，用于校正订单计数器
+     * @return
+     */
+    @Select("select id, status, order_time from orders where status in (1, 2, 3, 4)")
+    List<Orders> listInFlight();
+
+    /**
+     * 按id分批查询某个时间之后下单的订单号和手机号，用于构建搜索索引
+     * @param lastId 上一批最后一个订单id
+     * @param since
+     * @param limit
+     * @return
+     */
+    @Select("select id, number, phone from orders where id > #{lastId} and order_time >= #{since} order by id limit #{limit}")
+    List<Orders> listForSearchIndex(long lastId, LocalDateTime since, int limit);
+
+    /**
+     * 查询某个时间之后下单的订单号和手机号，用于增量同步搜索索引
+     * @param since
+     * @return
+     */
+    @Select("select id, number, phone from orders where order_time >= #{since} order by id")
+    List<Orders> listForSearchIndexSince(LocalDateTime since);
+
     /**
      * 统计各个状态的订单数量
      * @return 订单统计结果
@@ -62,6 +200,14 @@ public interface OrderMapper {
     @Select("select * from orders where id=#{id}")
     Orders getById(Long id);
 
+    /**
+     * 根据id查询订单号、状态、支付状态、下单时间并加行锁，供单个订单状态流转使用
+     * @param id
+     * @return
+     */
+    @Select("select id, number, status, pay_status, order_time from orders where id=#{id} for update")
+    Orders getStateByIdForUpdate(Long id);
+
     /**
      * 根据订单状态和订单时间筛选订单
      * @param  status
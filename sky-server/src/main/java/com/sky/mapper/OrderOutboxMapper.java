@@ -0,0 +1,62 @@
+package com.sky.mapper;
+
+import com.sky.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface OrderOutboxMapper {
+
+    /**
+     * 写入待投递消息
+     * @param orderOutbox
+     */
+    void insert(OrderOutbox orderOutbox);
+
+    /**
+     * 批量写入待投递消息
+     * @param orderOutboxes
+     */
+    void insertBatch(List<OrderOutbox> orderOutboxes);
+
+    /**
+     * 认领一批待投递消息，投递中但超时未完成的消息（实例宕机）也会被重新认领
+     * @param owner 认领者标识
+     * @param limit 最大认领数
+     * @param staleBefore 投递中状态的超时时间点
+     * @return 认领到的数量
+     */
+    int claim(String owner, int limit, LocalDateTime staleBefore);
+
+    /**
+     * 查询认领到的消息
+     * @param owner
+     * @return
+     */
+    @Select("select * from order_outbox where owner = #{owner} and status = 1 order by id")
+    List<OrderOutbox> listByOwner(String owner);
+
+    /**
+     * 标记为已投递
+     * @param ids
+     */
+    void markSent(List<Long> ids);
+
+    /**
+     * 投递失败，放回待投递并累加重试次数，超过最大重试次数的标记为失败
+     * @param ids
+     * @param maxRetry
+     */
+    void release(List<Long> ids, int maxRetry);
+
+    /**
+     * 清理已投递的历史消息
+     * @param before
+     */
+    @Delete("delete from order_outbox where status = 2 and update_time < #{before}")
+    void deleteSentBefore(LocalDateTime before);
+}
@@ -10,6 +10,7 @@ import com.sky.vo.SetmealVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 import java.util.Map;
@@ -84,4 +85,19 @@ public interface SetmealMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 查询限量套餐的库存
+     * @return
+     */
+    @Select("select id, stock from setmeal where stock is not null")
+    List<Setmeal> listWithStock();
+
+    /**
+     * 修改套餐库存，null表示不限量
+     * @param id
+     * @param stock
+     */
+    @Update("update setmeal set stock = #{stock} where id = #{id}")
+    void updateStock(Long id, Integer stock);
 }
@@ -5,6 +5,7 @@ import com.sky.entity.ShoppingCart;
 import com.sky.enumeration.OperationType;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -24,6 +25,13 @@ public interface ShoppingCartMapper {
      */
     void updateNumberById(ShoppingCart shoppingCart);
 
+    /**
+     * 更新商品单价
+     * @param shoppingCart
+     */
+    @Update("update shopping_cart set amount = #{amount} where id = #{id}")
+    void updateAmountById(ShoppingCart shoppingCart);
+
     /**
      * 插入购物车数据
      * @param shoppingCart
@@ -0,0 +1,28 @@
+package com.sky.service;
+
+import java.util.List;
+
+/**
+ * 延迟任务调度
+ * 在事务中调度时，事务提交后任务才生效，回滚不会产生任务
+ */
+public interface DelayScheduler {
+
+    /**
+     * 调度一个延迟任务
+     *
+     * @param topic       任务主题，见 DelayConstant
+     * @param id          订单id
+     * @param delayMillis 延迟时间（毫秒）
+     */
+    void schedule(String topic, Long id, long delayMillis);
+
+    /**
+     * 批量调度同一主题、同一延迟的任务
+     *
+     * @param topic
+     * @param ids
+     * @param delayMillis
+     */
+    void scheduleBatch(String topic, List<Long> ids, long delayMillis);
+}
@@ -0,0 +1,46 @@
+package com.sky.service;
+
+import java.util.List;
+
+/**
+ * 有序集合延迟任务的存储，生产环境使用 Redis，调试时可使用进程内实现
+ */
+public interface DelayStore {
+
+    /**
+     * 写入到期时间相同的一批任务，已存在的任务更新到期时间
+     *
+     * @param topic
+     * @param ids
+     * @param dueMillis 到期时间戳
+     */
+    void add(String topic, List<Long> ids, long dueMillis);
+
+    /**
+     * 原子地认领一批到期任务，认领后在租期内不会被再次认领；租约已过期的任务先放回队列
+     *
+     * @param topic
+     * @param now         当前时间戳
+     * @param limit       最大认领数
+     * @param leaseMillis 租期
+     * @return 认领到的任务id
+     */
+    List<Long> claim(String topic, long now, int limit, long leaseMillis);
+
+    /**
+     * 确认任务执行完成，删除租约和执行次数
+     *
+     * @param topic
+     * @param id
+     */
+    void ack(String topic, Long id);
+
+    /**
+     * 记录一次执行失败，租约保留，到期后重新投递
+     *
+     * @param topic
+     * @param id
+     * @return 累计失败次数
+     */
+    long fail(String topic, Long id);
+}
@@ -0,0 +1,10 @@
+package com.sky.service;
+
+public interface DeliveryZoneService {
+
+    /**
+     * 校验坐标是否在配送范围内，超出范围时抛出业务异常
+     * @param userCoordinate 用户收货地址坐标 lat,lng
+     */
+    void checkOutOfRange(String userCoordinate);
+}
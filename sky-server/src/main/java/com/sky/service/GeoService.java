@@ -0,0 +1,28 @@
+package com.sky.service;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface GeoService {
+
+    /**
+     * 根据地址获取经纬度坐标
+     * @param address 地址
+     * @return 坐标，格式为 lat,lng
+     */
+    String getCoordinate(String address);
+
+    /**
+     * 根据地址异步获取经纬度坐标，不阻塞调用线程
+     * @param address 地址
+     * @return 坐标，格式为 lat,lng
+     */
+    CompletableFuture<String> getCoordinateAsync(String address);
+
+    /**
+     * 获取两个坐标之间的骑行距离
+     * @param origin 起点坐标 lat,lng
+     * @param destination 终点坐标 lat,lng
+     * @return 骑行距离（米）
+     */
+    Integer getRidingDistance(String origin, String destination);
+}
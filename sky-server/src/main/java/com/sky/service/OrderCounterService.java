@@ -0,0 +1,44 @@
+package com.sky.service;
+
+import com.sky.entity.Orders;
+import com.sky.vo.OrderOverViewVO;
+import com.sky.vo.OrderStatisticsVO;
+
+import java.util.List;
+
+public interface OrderCounterService {
+
+    /**
+     * 新订单计数，在事务中调用时提交后才生效
+     *
+     * @param orders
+     */
+    void created(Orders orders);
+
+    /**
+     * 订单状态流转计数，在事务中调用时提交后才生效
+     *
+     * @param ids    流转成功的订单id
+     * @param status 目标状态
+     */
+    void transited(List<Long> ids, Integer status);
+
+    /**
+     * 从计数器读取待接单、待派送、派送中的订单数量
+     *
+     * @return 计数器不可用时返回null
+     */
+    OrderStatisticsVO getOrderStatistics();
+
+    /**
+     * 从计数器读取今日订单概览
+     *
+     * @return 计数器不可用时返回null
+     */
+    OrderOverViewVO getTodayOverView();
+
+    /**
+     * 用数据库校正计数器
+     */
+    void reconcile();
+}
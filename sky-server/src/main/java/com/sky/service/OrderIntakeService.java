@@ -0,0 +1,40 @@
+package com.sky.service;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.vo.OrderIntakeVO;
+import com.sky.vo.OrderSubmitVO;
+
+public interface OrderIntakeService {
+
+    /**
+     * 是否开启异步下单
+     *
+     * @return
+     */
+    boolean isEnabled();
+
+    /**
+     * 受理下单请求：只做轻量校验，投递到下单队列后立即返回排队凭证
+     *
+     * @param ordersSubmitDTO
+     * @return
+     */
+    OrderSubmitVO accept(OrdersSubmitDTO ordersSubmitDTO);
+
+    /**
+     * 消费下单队列，真正写入订单
+     *
+     * @param userId
+     * @param ticket
+     * @param ordersSubmitDTO
+     */
+    void process(Long userId, String ticket, OrdersSubmitDTO ordersSubmitDTO);
+
+    /**
+     * 查询受理结果
+     *
+     * @param ticket
+     * @return
+     */
+    OrderIntakeVO getResult(String ticket);
+}
@@ -0,0 +1,31 @@
+package com.sky.service;
+
+import com.sky.entity.Orders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderSearchService {
+
+    /**
+     * 按订单号、手机号子串搜索订单id
+     *
+     * @param number    订单号子串，可为空
+     * @param phone     手机号子串，可为空
+     * @param beginTime 查询的下单起始时间，为空或早于索引覆盖范围时无法使用索引
+     * @return 命中的订单id（新订单在前）；索引不可用或无法使用索引时返回null，由调用方退回 like 查询
+     */
+    List<Long> search(String number, String phone, LocalDateTime beginTime);
+
+    /**
+     * 新订单写入索引
+     *
+     * @param orders
+     */
+    void add(Orders orders);
+
+    /**
+     * 增量同步其它实例新增的订单，需要时在后台构建新索引
+     */
+    void sync();
+}
@@ -1,12 +1,17 @@
 package com.sky.service;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
+import com.sky.vo.OrderBatchResultVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
 
+import java.util.List;
+import java.util.Map;
+
 public interface OrderService {
 
     /**
@@ -16,6 +21,14 @@ public interface OrderService {
      */
     public OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO);
 
+    /**
+     * 使用指定的订单号下单，异步下单时订单号在受理时已经生成
+     * @param ordersSubmitDTO
+     * @param orderNumber
+     * @return
+     */
+    OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO, String orderNumber);
+
     /**
      * 订单支付
      * @param ordersPaymentDTO
@@ -29,6 +42,19 @@ public interface OrderService {
      */
     void paySuccess(String outTradeNo);
 
+    /**
+     * 处理微信支付成功通知，重复通知只会处理一次
+     * @param outTradeNo 商户订单号
+     * @param transactionId 微信支付交易号
+     */
+    void paySuccess(String outTradeNo, String transactionId);
+
+    /**
+     * 批量处理支付成功通知，在一个事务内完成
+     * @param payments 商户订单号 -> 微信支付交易号
+     */
+    void paySuccessBatch(Map<String, String> payments);
+
     /**
      * 分页搜索查询订单
      * @param ordersPageQueryDTO
@@ -36,6 +62,13 @@ public interface OrderService {
      */
     PageResult pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 游标分页搜索查询订单，不统计总数
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    CursorPageResult cursorQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 统计各个状态的订单数量
      * @return 订单统计结果
@@ -57,6 +90,15 @@ public interface OrderService {
      */
     PageResult pageQuery4User(int page, int pageSize, Integer status);
 
+    /**
+     * 用户端订单游标分页查询
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status);
+
     /**
      * 查询订单详情
      * @param id
@@ -105,6 +147,34 @@ public interface OrderService {
      */
     void complete(Long id);
 
+    /**
+     * 批量接单
+     * @param ids
+     * @return 每个订单的处理结果
+     */
+    List<OrderBatchResultVO> confirmBatch(List<Long> ids);
+
+    /**
+     * 批量派送
+     * @param ids
+     * @return 每个订单的处理结果
+     */
+    List<OrderBatchResultVO> deliveryBatch(List<Long> ids);
+
+    /**
+     * 批量完成
+     * @param ids
+     * @return 每个订单的处理结果
+     */
+    List<OrderBatchResultVO> completeBatch(List<Long> ids);
+
+    /**
+     * 批量取消
+     * @param ordersBatchDTO
+     * @return 每个订单的处理结果
+     */
+    List<OrderBatchResultVO> cancelBatch(OrdersBatchDTO ordersBatchDTO);
+
     /**
      * 用户催单
      */
@@ -0,0 +1,52 @@
+package com.sky.service;
+
+import java.util.List;
+
+public interface OrderTimeoutService {
+
+    /**
+     * 支付超时：仍为待付款的订单自动取消
+     *
+     * @param orderId
+     */
+    void payTimeout(Long orderId);
+
+    /**
+     * 派送超时：仍在派送中的订单自动取消
+     *
+     * @param orderId
+     */
+    void deliveryTimeout(Long orderId);
+
+    /**
+     * 支付超时第一级检测：仍为待付款的订单批量转入第二级延迟队列
+     *
+     * @param orderIds
+     * @return 转入第二级的订单数
+     */
+    int payCheckBatch(List<Long> orderIds);
+
+    /**
+     * 派送超时第一级检测：仍在派送中的订单批量转入第二级延迟队列
+     *
+     * @param orderIds
+     * @return 转入第二级的订单数
+     */
+    int deliveryCheckBatch(List<Long> orderIds);
+
+    /**
+     * 支付超时批量取消
+     *
+     * @param orderIds
+     * @return 取消的订单数
+     */
+    int payTimeoutBatch(List<Long> orderIds);
+
+    /**
+     * 派送超时批量取消
+     *
+     * @param orderIds
+     * @return 取消的订单数
+     */
+    int deliveryTimeoutBatch(List<Long> orderIds);
+}
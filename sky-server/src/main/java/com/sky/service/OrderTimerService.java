@@ -0,0 +1,37 @@
+package com.sky.service;
+
+import java.util.List;
+
+/**
+ * 订单超时计时
+ * 先在进程内时间轮中计时，订单支付/完成时直接取消；本地计时到期后仍未处理的订单才交给 DelayScheduler
+ * 在事务中调用时，事务提交后才生效
+ */
+public interface OrderTimerService {
+
+    /**
+     * 开始计时
+     *
+     * @param topic       任务主题，见 DelayConstant
+     * @param id          订单id
+     * @param delayMillis 超时时间（毫秒）
+     */
+    void schedule(String topic, Long id, long delayMillis);
+
+    /**
+     * 批量开始计时
+     *
+     * @param topic
+     * @param ids
+     * @param delayMillis
+     */
+    void scheduleBatch(String topic, List<Long> ids, long delayMillis);
+
+    /**
+     * 取消本地计时，已交给 DelayScheduler 的任务由处理方法按订单状态跳过
+     *
+     * @param topic
+     * @param ids
+     */
+    void cancel(String topic, List<Long> ids);
+}
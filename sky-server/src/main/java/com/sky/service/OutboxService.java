@@ -0,0 +1,24 @@
+package com.sky.service;
+
+import java.util.List;
+
+public interface OutboxService {
+
+    /**
+     * 在当前事务中写入一条待投递消息，事务提交后由后台任务投递
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payload
+     */
+    void save(String exchange, String routingKey, Object payload);
+
+    /**
+     * 在当前事务中批量写入同一路由的待投递消息，一条语句完成
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payloads
+     */
+    void saveBatch(String exchange, String routingKey, List<?> payloads);
+}
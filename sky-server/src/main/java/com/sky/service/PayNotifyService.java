@@ -0,0 +1,21 @@
+package com.sky.service;
+
+import java.util.List;
+
+public interface PayNotifyService {
+
+    /**
+     * 受理支付成功通知：快速应答模式下持久化入队后返回，否则直接处理
+     *
+     * @param outTradeNo    商户订单号
+     * @param transactionId 微信支付交易号
+     */
+    void accept(String outTradeNo, String transactionId);
+
+    /**
+     * 批量处理队列中的支付成功通知
+     *
+     * @param messages
+     */
+    void process(List<String> messages);
+}
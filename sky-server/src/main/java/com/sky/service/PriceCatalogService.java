@@ -0,0 +1,54 @@
+package com.sky.service;
+
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface PriceCatalogService {
+
+    /**
+     * 查询起售中的菜品，不存在或已停售时返回null
+     *
+     * @param dishId
+     * @return
+     */
+    Dish getDish(Long dishId);
+
+    /**
+     * 查询起售中的套餐，不存在或已停售时返回null
+     *
+     * @param setmealId
+     * @return
+     */
+    Setmeal getSetmeal(Long setmealId);
+
+    /**
+     * 查询购物车中一项商品的当前单价，已停售时返回null
+     *
+     * @param cart
+     * @return
+     */
+    BigDecimal getPrice(ShoppingCart cart);
+
+    /**
+     * 菜品修改后刷新，事务提交后生效
+     *
+     * @param dishIds
+     */
+    void refreshDishes(List<Long> dishIds);
+
+    /**
+     * 套餐修改后刷新，事务提交后生效
+     *
+     * @param setmealIds
+     */
+    void refreshSetmeals(List<Long> setmealIds);
+
+    /**
+     * 检查其它实例是否修改过价格，有修改时重新加载
+     */
+    void checkVersion();
+}
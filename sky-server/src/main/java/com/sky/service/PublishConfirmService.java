@@ -0,0 +1,36 @@
+package com.sky.service;
+
+/**
+ * 异步发送确认
+ * 发送后立即返回，broker 确认在回调中处理；被拒绝、退回或确认超时的消息由定时任务重发
+ */
+public interface PublishConfirmService {
+
+    /**
+     * 发送消息，不等待确认
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payload    消息体，已经是 Message 时原样发送（保留消息头）
+     */
+    void send(String exchange, String routingKey, Object payload);
+
+    /**
+     * 将确认超时的消息转入重发，并重发所有失败的消息
+     */
+    void retry();
+
+    /**
+     * 已发送未确认、以及等待重发的消息数
+     *
+     * @return
+     */
+    int getOutstanding();
+
+    /**
+     * 发送到收到确认的平均耗时（毫秒），按指数加权移动平均计算
+     *
+     * @return
+     */
+    double getLatencyMillis();
+}
@@ -0,0 +1,44 @@
+package com.sky.service;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+public interface StockService {
+
+    /**
+     * 为订单预占整个购物车的库存，任意一项不足时全部不扣减
+     *
+     * @param orderNumber
+     * @param carts
+     */
+    void reserve(String orderNumber, List<ShoppingCart> carts);
+
+    /**
+     * 释放订单预占的库存，重复调用只会释放一次
+     *
+     * @param orderNumber
+     */
+    void release(String orderNumber);
+
+    /**
+     * 设置菜品库存
+     *
+     * @param dishId
+     * @param stock null表示不限量
+     */
+    void setDishStock(Long dishId, Integer stock);
+
+    /**
+     * 设置套餐库存
+     *
+     * @param setmealId
+     * @param stock null表示不限量
+     */
+    void setSetmealStock(Long setmealId, Integer stock);
+
+    /**
+     * Redis 与 MySQL 库存对账
+     */
+    void reconcile();
+}
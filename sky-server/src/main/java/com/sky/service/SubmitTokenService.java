@@ -0,0 +1,22 @@
+package com.sky.service;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.vo.OrderSubmitVO;
+
+public interface SubmitTokenService {
+
+    /**
+     * 为当前用户生成下单令牌
+     *
+     * @return
+     */
+    String createToken();
+
+    /**
+     * 幂等下单，同一令牌只会真正下单一次
+     *
+     * @param ordersSubmitDTO
+     * @return
+     */
+    OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO);
+}
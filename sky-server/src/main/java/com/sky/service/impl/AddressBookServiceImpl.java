@@ -1,5 +1,6 @@
 package com.sky.service.impl;
 
+import com.sky.Task.AddressGeocodeTask;
 import com.sky.context.BaseContext;
 import com.sky.entity.AddressBook;
 import com.sky.mapper.AddressBookMapper;
@@ -15,6 +16,8 @@ import java.util.List;
 public class AddressBookServiceImpl implements AddressBookService {
     @Autowired
     private AddressBookMapper addressBookMapper;
+    @Autowired
+    private AddressGeocodeTask addressGeocodeTask;
 
     /**
      * 条件查询
@@ -35,6 +38,8 @@ public class AddressBookServiceImpl implements AddressBookService {
         addressBook.setUserId(BaseContext.getCurrentId());
         addressBook.setIsDefault(0);
         addressBookMapper.insert(addressBook);
+        //异步解析经纬度，下单时直接使用
+        addressGeocodeTask.fillCoordinate(addressBook.getId());
     }
 
     /**
@@ -55,6 +60,11 @@ public class AddressBookServiceImpl implements AddressBookService {
      */
     public void update(AddressBook addressBook) {
         addressBookMapper.update(addressBook);
+        //省/市/区/详细地址变更后旧坐标已清空，重新异步解析
+        if (addressBook.getProvinceName() != null || addressBook.getCityName() != null
+                || addressBook.getDistrictName() != null || addressBook.getDetail() != null) {
+            addressGeocodeTask.fillCoordinate(addressBook.getId());
+        }
     }
 
     /**
@@ -0,0 +1,215 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.ShopProperties;
+import com.sky.service.DeliveryZoneService;
+import com.sky.service.GeoService;
+import com.sky.utils.GeoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地配送范围判定
+ * 以商家为中心预计算一张网格，每个网格标记为 范围内/范围外/边界：
+ * 1. 网格到商家的最近直线距离都超过配送半径 —— 骑行距离只会更远，直接判定范围外
+ * 2. 网格到商家的最远直线距离乘以绕路系数仍在半径内 —— 直接判定范围内
+ * 3. 其余为边界网格，先用球面距离快速判断，判断不了的才调用骑行路线接口
+ */
+@Service
+@Slf4j
+public class DeliveryZoneServiceImpl implements DeliveryZoneService {
+
+    private static final byte OUT = 0;
+    private static final byte IN = 1;
+    private static final byte BORDER = 2;
+
+    private final ShopProperties shopProperties;
+    private final GeoService geoService;
+
+    private volatile Zone zone;
+    private CompletableFuture<String> shopCoordinateFuture;
+
+    public DeliveryZoneServiceImpl(ShopProperties shopProperties, GeoService geoService) {
+        this.shopProperties = shopProperties;
+        this.geoService = geoService;
+    }
+
+    /**
+     * 启动时异步解析商家坐标，首次下单时与用户地址解析并发进行，不阻塞启动
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (shopProperties.getLat() != null && shopProperties.getLng() != null) {
+            return;
+        }
+        try {
+            shopCoordinateFuture = geoService.getCoordinateAsync(shopProperties.getAddress());
+        } catch (Exception e) {
+            log.warn("商家坐标预解析失败，首次下单时再解析：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 校验坐标是否在配送范围内
+     *
+     * @param userCoordinate
+     */
+    public void checkOutOfRange(String userCoordinate) {
+        Zone zone = getZone();
+        double[] point = GeoUtil.parse(userCoordinate);
+        double lat = point[0];
+        double lng = point[1];
+
+        // 1. 配置了配送多边形时，多边形外一律不配送
+        if (!zone.polygon.isEmpty() && !GeoUtil.inPolygon(lat, lng, zone.polygon)) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+
+        // 2. 查预计算网格
+        byte state = zone.tileOf(lat, lng);
+        if (state == IN) {
+            return;
+        }
+        if (state == OUT) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+
+        // 3. 边界网格：先按该点的直线距离快速判断
+        int radius = shopProperties.getRadius();
+        double straight = GeoUtil.haversine(zone.shopLat, zone.shopLng, lat, lng);
+        if (straight > radius) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+        if (straight * shopProperties.getDetourFactor() <= radius) {
+            return;
+        }
+
+        // 4. 仍无法判断的才调用骑行路线规划
+        Integer distance = geoService.getRidingDistance(zone.shopCoordinate, userCoordinate);
+        log.info("商家到用户的骑行距离为：{}米", distance);
+        if (distance > radius) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+    }
+
+    /**
+     * 延迟初始化网格，商家坐标未配置时需要调用一次地址解析
+     */
+    private Zone getZone() {
+        Zone current = zone;
+        if (current == null) {
+            synchronized (this) {
+                current = zone;
+                if (current == null) {
+                    current = buildZone();
+                    zone = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Zone buildZone() {
+        String shopCoordinate;
+        if (shopProperties.getLat() != null && shopProperties.getLng() != null) {
+            shopCoordinate = shopProperties.getLat() + "," + shopProperties.getLng();
+        } else {
+            shopCoordinate = resolveShopCoordinate();
+        }
+
+        List<double[]> polygon = new ArrayList<>();
+        for (String vertex : shopProperties.getPolygon()) {
+            polygon.add(GeoUtil.parse(vertex));
+        }
+
+        Zone zone = new Zone(shopCoordinate, polygon, shopProperties.getRadius(),
+                shopProperties.getTileSize(), shopProperties.getDetourFactor());
+        log.info("配送范围网格初始化完成，商家坐标：{}，网格数：{}x{}", shopCoordinate, zone.size, zone.size);
+        return zone;
+    }
+
+    private String resolveShopCoordinate() {
+        if (shopCoordinateFuture != null) {
+            try {
+                return shopCoordinateFuture.join();
+            } catch (Exception e) {
+                log.warn("商家坐标预解析失败，重新解析：{}", e.getMessage());
+            }
+        }
+        return geoService.getCoordinate(shopProperties.getAddress());
+    }
+
+    /**
+     * 以商家为中心的配送网格
+     */
+    private static class Zone {
+
+        private final String shopCoordinate;
+        private final double shopLat;
+        private final double shopLng;
+        private final List<double[]> polygon;
+        private final double tileLat; // 每个网格的纬度跨度
+        private final double tileLng; // 每个网格的经度跨度
+        private final int half; // 商家到网格边缘的网格数
+        private final int size;
+        private final byte[][] tiles;
+
+        private Zone(String shopCoordinate, List<double[]> polygon, int radius, int tileSize, double detourFactor) {
+            double[] shop = GeoUtil.parse(shopCoordinate);
+            this.shopCoordinate = shopCoordinate;
+            this.shopLat = shop[0];
+            this.shopLng = shop[1];
+            this.polygon = polygon;
+            this.tileLat = tileSize / GeoUtil.METERS_PER_DEGREE;
+            this.tileLng = tileSize / (GeoUtil.METERS_PER_DEGREE * Math.cos(Math.toRadians(shopLat)));
+            this.half = (int) Math.ceil((double) radius / tileSize) + 1;
+            this.size = half * 2;
+            this.tiles = new byte[size][size];
+
+            for (int i = 0; i < size; i++) {
+                double minLat = shopLat + (i - half) * tileLat;
+                double maxLat = minLat + tileLat;
+                for (int j = 0; j < size; j++) {
+                    double minLng = shopLng + (j - half) * tileLng;
+                    double maxLng = minLng + tileLng;
+
+                    // 网格内离商家最近的点
+                    double nearLat = Math.max(minLat, Math.min(shopLat, maxLat));
+                    double nearLng = Math.max(minLng, Math.min(shopLng, maxLng));
+                    double min = GeoUtil.haversine(shopLat, shopLng, nearLat, nearLng);
+
+                    // 网格内离商家最远的点一定是某个角
+                    double max = Math.max(
+                            Math.max(GeoUtil.haversine(shopLat, shopLng, minLat, minLng),
+                                    GeoUtil.haversine(shopLat, shopLng, minLat, maxLng)),
+                            Math.max(GeoUtil.haversine(shopLat, shopLng, maxLat, minLng),
+                                    GeoUtil.haversine(shopLat, shopLng, maxLat, maxLng)));
+
+                    if (min > radius) {
+                        tiles[i][j] = OUT;
+                    } else if (max * detourFactor <= radius) {
+                        tiles[i][j] = IN;
+                    } else {
+                        tiles[i][j] = BORDER;
+                    }
+                }
+            }
+        }
+
+        private byte tileOf(double lat, double lng) {
+            int i = (int) Math.floor((lat - shopLat) / tileLat) + half;
+            int j = (int) Math.floor((lng - shopLng) / tileLng) + half;
+            // 网格覆盖了配送半径外一圈，落在网格之外的点直线距离已超出半径
+            if (i < 0 || i >= size || j < 0 || j >= size) {
+                return OUT;
+            }
+            return tiles[i][j];
+        }
+    }
+}
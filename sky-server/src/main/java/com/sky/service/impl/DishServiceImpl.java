@@ -14,6 +14,7 @@ import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealDishMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
+import com.sky.service.PriceCatalogService;
 import com.sky.vo.DishVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -37,6 +38,8 @@ public class DishServiceImpl implements DishService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private PriceCatalogService priceCatalogService;
 
     /**
      * 新增菜品和对应的口味
@@ -64,6 +67,8 @@ public class DishServiceImpl implements DishService {
 
         //清理缓存
         redisTemplate.delete("dish_"+dishDTO.getCategoryId() );
+        //刷新价格目录
+        priceCatalogService.refreshDishes(Collections.singletonList(dishId));
     }
 
     /**
@@ -109,6 +114,8 @@ public class DishServiceImpl implements DishService {
 
         //清理缓存
         redisTemplate.delete(keys);
+        //刷新价格目录
+        priceCatalogService.refreshDishes(ids);
     }
 
     /**
@@ -140,6 +147,8 @@ public class DishServiceImpl implements DishService {
         if(preCategoryId!=dishDTO.getCategoryId()) {
             redisTemplate.delete("dish_" + dishDTO.getCategoryId());
         }
+        //刷新价格目录
+        priceCatalogService.refreshDishes(Collections.singletonList(dish.getId()));
     }
 
     /**
@@ -161,6 +170,8 @@ public class DishServiceImpl implements DishService {
         if (dishFromDb != null) {
             redisTemplate.delete("dish_" + dishFromDb.getCategoryId());
         }
+        //刷新价格目录
+        priceCatalogService.refreshDishes(Collections.singletonList(id));
     }
 
     /**
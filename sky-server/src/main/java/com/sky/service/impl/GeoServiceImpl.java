@@ -0,0 +1,227 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.RedisConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.BaiduMapProperties;
+import com.sky.service.GeoService;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 百度地图地理编码/骑行路线规划，带两级缓存
+ * L1：进程内 Caffeine，按条目数上限淘汰
+ * L2：Redis，多实例共享，带过期时间
+ * 商家地址和老用户的收货地址坐标固定不变，命中缓存后不再调用远程接口
+ */
+@Service
+@Slf4j
+public class GeoServiceImpl implements GeoService {
+
+    private static final String GEOCODING_URL = "https://api.map.baidu.com/geocoding/v3";
+    private static final String RIDING_URL = "https://api.map.baidu.com/directionlite/v1/riding";
+
+    @Autowired
+    private BaiduMapProperties baiduMapProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Cache<String, String> coordinateCache;
+    private Cache<String, Integer> routeCache;
+
+    @PostConstruct
+    public void init() {
+        coordinateCache = Caffeine.newBuilder()
+                .maximumSize(baiduMapProperties.getLocalCacheMaxSize())
+                .expireAfterWrite(baiduMapProperties.getLocalCacheExpireMinutes(), TimeUnit.MINUTES)
+                .build();
+        routeCache = Caffeine.newBuilder()
+                .maximumSize(baiduMapProperties.getLocalCacheMaxSize())
+                .expireAfterWrite(baiduMapProperties.getLocalCacheExpireMinutes(), TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * 根据地址获取经纬度坐标 (lat,lng)
+     *
+     * @param address
+     * @return
+     */
+    public String getCoordinate(String address) {
+        String key = RedisConstant.GEO_COORDINATE_KEY + digest(normalize(address));
+
+        // 1. 查本地缓存
+        String coordinate = coordinateCache.getIfPresent(key);
+        if (coordinate != null) {
+            return coordinate;
+        }
+
+        // 2. 查 Redis
+        coordinate = getFromRedis(key);
+        if (coordinate != null) {
+            coordinateCache.put(key, coordinate);
+            return coordinate;
+        }
+
+        // 3. 调用百度地图地理编码接口
+        coordinate = requestCoordinate(address);
+        coordinateCache.put(key, coordinate);
+        putToRedis(key, coordinate);
+        return coordinate;
+    }
+
+    /**
+     * 根据地址异步获取经纬度坐标 (lat,lng)
+     * 缓存命中时直接返回已完成的future，未命中时通过非阻塞客户端调用远程接口
+     *
+     * @param address
+     * @return
+     */
+    public CompletableFuture<String> getCoordinateAsync(String address) {
+        String key = RedisConstant.GEO_COORDINATE_KEY + digest(normalize(address));
+
+        String coordinate = coordinateCache.getIfPresent(key);
+        if (coordinate == null) {
+            coordinate = getFromRedis(key);
+            if (coordinate != null) {
+                coordinateCache.put(key, coordinate);
+            }
+        }
+        if (coordinate != null) {
+            return CompletableFuture.completedFuture(coordinate);
+        }
+
+        // 回调在IO线程上执行，解析和写缓存切到公共线程池，避免阻塞IO线程
+        return HttpClientUtil.doGetAsync(GEOCODING_URL, geocodingParams(address))
+                .thenApplyAsync(responseString -> {
+                    String result = parseCoordinate(responseString);
+                    coordinateCache.put(key, result);
+                    putToRedis(key, result);
+                    return result;
+                });
+    }
+
+    /**
+     * 获取两个坐标之间的骑行距离（米）
+     *
+     * @param origin
+     * @param destination
+     * @return
+     */
+    public Integer getRidingDistance(String origin, String destination) {
+        String key = RedisConstant.GEO_ROUTE_KEY + digest(origin + "|" + destination);
+
+        Integer distance = routeCache.getIfPresent(key);
+        if (distance != null) {
+            return distance;
+        }
+
+        String cached = getFromRedis(key);
+        if (cached != null) {
+            distance = Integer.valueOf(cached);
+            routeCache.put(key, distance);
+            return distance;
+        }
+
+        distance = requestRidingDistance(origin, destination);
+        routeCache.put(key, distance);
+        putToRedis(key, String.valueOf(distance));
+        return distance;
+    }
+
+    /**
+     * 调用百度地图地理编码接口
+     */
+    private String requestCoordinate(String address) {
+        return parseCoordinate(HttpClientUtil.doGet(GEOCODING_URL, geocodingParams(address)));
+    }
+
+    private Map<String, String> geocodingParams(String address) {
+        Map<String, String> map = new HashMap<>();
+        map.put("address", address);
+        map.put("output", "json");
+        map.put("ak", baiduMapProperties.getAk());
+        return map;
+    }
+
+    private String parseCoordinate(String responseString) {
+        JSONObject jsonObject = JSON.parseObject(responseString);
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            throw new OrderBusinessException(MessageConstant.ADDRESS_GEOCODING_FAILED);
+        }
+
+        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
+        String lat = location.getString("lat"); // 纬度
+        String lng = location.getString("lng"); // 经度
+
+        // 百度路线规划接口要求格式：lat,lng
+        return lat + "," + lng;
+    }
+
+    /**
+     * 调用百度地图轻量级路线规划接口（骑行）
+     */
+    private Integer requestRidingDistance(String origin, String destination) {
+        Map<String, String> map = new HashMap<>();
+        map.put("origin", origin);
+        map.put("destination", destination);
+        map.put("ak", baiduMapProperties.getAk());
+
+        String responseString = HttpClientUtil.doGet(RIDING_URL, map);
+
+        JSONObject jsonObject = JSON.parseObject(responseString);
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            throw new OrderBusinessException(MessageConstant.ROUTE_PLANNING_FAILED);
+        }
+
+        // 解析出距离（单位：米）
+        JSONObject result = jsonObject.getJSONObject("result");
+        JSONArray routes = result.getJSONArray("routes");
+        return ((JSONObject) routes.get(0)).getInteger("distance");
+    }
+
+    private String getFromRedis(String key) {
+        try {
+            return stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            // Redis 不可用时降级为直接调用远程接口
+            log.error("读取地理缓存失败：{}", key, e);
+            return null;
+        }
+    }
+
+    private void putToRedis(String key, String value) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, value, baiduMapProperties.getRedisCacheExpireDays(), TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.error("写入地理缓存失败：{}", key, e);
+        }
+    }
+
+    /**
+     * 地址规范化：去掉所有空白字符，全角空格一并处理
+     */
+    private String normalize(String address) {
+        return address.replaceAll("[\\s\\u3000]+", "");
+    }
+
+    private String digest(String text) {
+        return DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package com.sky.service.impl;
+
+import com.sky.service.DelayStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟任务的进程内存储，语义与 Redis 存储一致
+ * 只在单实例调试、离线测试时使用，进程重启后任务丢失
+ */
+public class MemoryDelayStore implements DelayStore {
+
+    // 主题 -> (任务id -> 到期时间)
+    private final Map<String, Map<Long, Long>> queues = new HashMap<>();
+    // 主题 -> (任务id -> 租约到期时间)
+    private final Map<String, Map<Long, Long>> leases = new HashMap<>();
+    // 主题 -> (任务id -> 失败次数)
+    private final Map<String, Map<Long, Long>> attempts = new HashMap<>();
+
+    public synchronized void add(String topic, List<Long> ids, long dueMillis) {
+        Map<Long, Long> queue = get(queues, topic);
+        for (Long id : ids) {
+            queue.put(id, dueMillis);
+        }
+    }
+
+    public synchronized List<Long> claim(String topic, long now, int limit, long leaseMillis) {
+        Map<Long, Long> queue = get(queues, topic);
+        Map<Long, Long> lease = get(leases, topic);
+
+        // 租约过期的任务放回待执行
+        List<Long> expired = new ArrayList<>();
+        lease.forEach((id, until) -> {
+            if (until <= now) {
+                expired.add(id);
+            }
+        });
+        for (Long id : expired) {
+            lease.remove(id);
+            queue.put(id, now);
+        }
+
+        // 按到期时间认领
+        List<Map.Entry<Long, Long>> due = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : queue.entrySet()) {
+            if (entry.getValue() <= now) {
+                due.add(entry);
+            }
+        }
+        due.sort(Map.Entry.comparingByValue());
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < due.size() && i < limit; i++) {
+            Long id = due.get(i).getKey();
+            ids.add(id);
+        }
+        for (Long id : ids) {
+            queue.remove(id);
+            lease.put(id, now + leaseMillis);
+        }
+        return ids;
+    }
+
+    public synchronized void ack(String topic, Long id) {
+        get(leases, topic).remove(id);
+        get(attempts, topic).remove(id);
+    }
+
+    public synchronized long fail(String topic, Long id) {
+        return get(attempts, topic).merge(id, 1L, Long::sum);
+    }
+
+    private Map<Long, Long> get(Map<String, Map<Long, Long>> maps, String topic) {
+        return maps.computeIfAbsent(topic, k -> new HashMap<>());
+    }
+}
@@ -0,0 +1,283 @@
+package com.sky.service.impl;
+
+import com.sky.constant.RedisConstant;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.service.OrderCounterService;
+import com.sky.vo.OrderOverViewVO;
+import com.sky.vo.OrderStatisticsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单状态计数器
+ * Redis 中保存各状态的订单总数和每日订单数，下单和每次状态流转提交后用 Lua 脚本原子加减，
+ * 管理端的订单统计和今日概览直接读取计数器，不再扫描订单表
+ * 未结束订单的当前状态记录在 live Hash 中，流转时据此得知原状态和下单日期；
+ * 计数器由定时任务用数据库校正，Redis 数据丢失或脚本执行失败造成的偏差会在下一次校正后消除
+ */
+@Service
+@Slf4j
+public class OrderCounterServiceImpl implements OrderCounterService {
+
+    private static final String FIELD_ALL = "all";
+
+    // KEYS[1] live，KEYS[2] 总数，KEYS[3] 当日计数；ARGV[1] 订单id，ARGV[2] 状态，ARGV[3] 下单日期，ARGV[4] 当日计数过期时间
+    private static final DefaultRedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hsetnx', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3]) == 0 then return 0 end " +
+                    "redis.call('hincrby', KEYS[2], ARGV[2], 1) " +
+                    "redis.call('hincrby', KEYS[3], ARGV[2], 1) " +
+                    "redis.call('hincrby', KEYS[3], 'all', 1) " +
+                    "redis.call('expire', KEYS[3], ARGV[4]) " +
+                    "return 1", Long.class);
+
+    // KEYS[1] live，KEYS[2] 总数；ARGV[1] 目标状态，ARGV[2] 目标状态是否为结束状态，ARGV[3] 当日计数 Key 前缀，ARGV[4..n] 订单id
+    // live 中没有记录的订单（原状态未知）跳过，由定时校正兜底；当日计数已过期的不再重建
+    private static final DefaultRedisScript<Long> TRANSIT_SCRIPT = new DefaultRedisScript<>(
+            "local changed = 0 " +
+                    "for i = 4, #ARGV do " +
+                    "local live = redis.call('hget', KEYS[1], ARGV[i]) " +
+                    "if live then " +
+                    "local sep = string.find(live, ':') " +
+                    "local from = string.sub(live, 1, sep - 1) " +
+                    "local day = string.sub(live, sep + 1) " +
+                    "if from ~= ARGV[1] then " +
+                    "redis.call('hincrby', KEYS[2], from, -1) " +
+                    "redis.call('hincrby', KEYS[2], ARGV[1], 1) " +
+                    "local dayKey = ARGV[3] .. day " +
+                    "if redis.call('exists', dayKey) == 1 then " +
+                    "redis.call('hincrby', dayKey, from, -1) " +
+                    "redis.call('hincrby', dayKey, ARGV[1], 1) " +
+                    "end " +
+                    "changed = changed + 1 " +
+                    "end " +
+                    "if ARGV[2] == '1' then redis.call('hdel', KEYS[1], ARGV[i]) " +
+                    "else redis.call('hset', KEYS[1], ARGV[i], ARGV[1] .. ':' .. day) end " +
+                    "end " +
+                    "end " +
+                    "return changed", Long.class);
+
+    // KEYS[1] 计数 Hash；ARGV[1] 过期秒数（0 表示不过期），ARGV[2..n] 依次为字段和值
+    // 删除与写入在同一脚本中完成，读取方不会看到空 Hash，过期时间随之重新设置
+    private static final DefaultRedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1]) " +
+                    "redis.call('hmset', KEYS[1], unpack(ARGV, 2)) " +
+                    "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+                    "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 新订单计数，在事务中调用时提交后才生效
+     *
+     * @param orders
+     */
+    public void created(Orders orders) {
+        Long id = orders.getId();
+        String status = String.valueOf(orders.getStatus());
+        String day = orders.getOrderTime().toLocalDate().toString();
+        afterCommit(() -> stringRedisTemplate.execute(CREATE_SCRIPT,
+                Arrays.asList(RedisConstant.ORDER_COUNT_LIVE_KEY, RedisConstant.ORDER_COUNT_TOTAL_KEY,
+                        RedisConstant.ORDER_COUNT_DAY_KEY + day),
+                String.valueOf(id), status, day,
+                String.valueOf(TimeUnit.DAYS.toSeconds(RedisConstant.ORDER_COUNT_DAY_EXPIRE_DAYS))));
+    }
+
+    /**
+     * 订单状态流转计数，在事务中调用时提交后才生效
+     *
+     * @param ids    流转成功的订单id
+     * @param status 目标状态
+     */
+    public void transited(List<Long> ids, Integer status) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        boolean finished = Orders.COMPLETED.equals(status) || Orders.CANCELLED.equals(status);
+        List<String> args = new ArrayList<>(ids.size() + 3);
+        args.add(String.valueOf(status));
+        args.add(finished ? "1" : "0");
+        args.add(RedisConstant.ORDER_COUNT_DAY_KEY);
+        for (Long id : ids) {
+            args.add(String.valueOf(id));
+        }
+        afterCommit(() -> stringRedisTemplate.execute(TRANSIT_SCRIPT,
+                Arrays.asList(RedisConstant.ORDER_COUNT_LIVE_KEY, RedisConstant.ORDER_COUNT_TOTAL_KEY),
+                args.toArray()));
+    }
+
+    /**
+     * 从计数器读取待接单、待派送、派送中的订单数量
+     *
+     * @return 计数器不可用时返回null
+     */
+    public OrderStatisticsVO getOrderStatistics() {
+        List<Integer> counts = read(RedisConstant.ORDER_COUNT_TOTAL_KEY,
+                Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS);
+        if (counts == null) {
+            return null;
+        }
+        OrderStatisticsVO statistics = new OrderStatisticsVO();
+        statistics.setToBeConfirmed(counts.get(0));
+        statistics.setConfirmed(counts.get(1));
+        statistics.setDeliveryInProgress(counts.get(2));
+        return statistics;
+    }
+
+    /**
+     * 从计数器读取今日订单概览
+     *
+     * @return 计数器不可用时返回null
+     */
+    public OrderOverViewVO getTodayOverView() {
+        List<Integer> counts = read(RedisConstant.ORDER_COUNT_DAY_KEY + LocalDate.now(),
+                Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.COMPLETED, Orders.CANCELLED, FIELD_ALL);
+        if (counts == null) {
+            return null;
+        }
+        return OrderOverViewVO.builder()
+                .waitingOrders(counts.get(0))
+                .deliveredOrders(counts.get(1))
+                .completedOrders(counts.get(2))
+                .cancelledOrders(counts.get(3))
+                .allOrders(counts.get(4))
+                .build();
+    }
+
+    /**
+     * 用数据库校正计数器，由定时任务在持有租约时调用，同一时刻只有一个实例在校正
+     * 总数和当日计数整体原子替换；统计查询到替换之间发生的流转可能被覆盖，偏差会在下一次校正后消除
+     */
+    public void reconcile() {
+        // 1. 未结束订单的当前状态
+        Map<String, String> live = new HashMap<>();
+        for (Orders orders : orderMapper.listInFlight()) {
+            live.put(String.valueOf(orders.getId()), orders.getStatus() + ":" + orders.getOrderTime().toLocalDate());
+        }
+        Set<String> stale = new HashSet<>();
+        for (Object field : stringRedisTemplate.opsForHash().keys(RedisConstant.ORDER_COUNT_LIVE_KEY)) {
+            if (!live.containsKey(field)) {
+                stale.add((String) field);
+            }
+        }
+        if (!stale.isEmpty()) {
+            stringRedisTemplate.opsForHash().delete(RedisConstant.ORDER_COUNT_LIVE_KEY, stale.toArray());
+        }
+        if (!live.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(RedisConstant.ORDER_COUNT_LIVE_KEY, live);
+        }
+
+        // 2. 各状态订单总数
+        Map<String, String> total = toHash(orderMapper.countGroupByStatus(null));
+        replace(RedisConstant.ORDER_COUNT_TOTAL_KEY, total, 0);
+
+        // 3. 今日各状态订单数
+        LocalDate today = LocalDate.now();
+        Map<String, String> day = toHash(orderMapper.countGroupByStatus(LocalDateTime.of(today, LocalTime.MIN)));
+        String dayKey = RedisConstant.ORDER_COUNT_DAY_KEY + today;
+        replace(dayKey, day, TimeUnit.DAYS.toSeconds(RedisConstant.ORDER_COUNT_DAY_EXPIRE_DAYS));
+
+        log.info("订单计数器校正完成，未结束订单：{}，今日订单：{}", live.size(), day.get(FIELD_ALL));
+    }
+
+    /**
+     * 数据库统计结果转为计数 Hash，补齐没有订单的状态，并附带总数
+     */
+    private Map<String, String> toHash(List<OrderStatusCountDTO> counts) {
+        Map<String, String> hash = new HashMap<>();
+        for (int status = Orders.PENDING_PAYMENT; status <= Orders.CANCELLED; status++) {
+            hash.put(String.valueOf(status), "0");
+        }
+        int all = 0;
+        for (OrderStatusCountDTO count : counts) {
+            hash.put(String.valueOf(count.getStatus()), String.valueOf(count.getCount()));
+            all += count.getCount();
+        }
+        hash.put(FIELD_ALL, String.valueOf(all));
+        return hash;
+    }
+
+    /**
+     * 用一次脚本调用整体替换计数 Hash
+     *
+     * @param expireSeconds 过期秒数，0 表示不过期
+     */
+    private void replace(String key, Map<String, String> hash, long expireSeconds) {
+        List<String> args = new ArrayList<>(hash.size() * 2 + 1);
+        args.add(String.valueOf(expireSeconds));
+        hash.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        stringRedisTemplate.execute(REPLACE_SCRIPT, Collections.singletonList(key), args.toArray());
+    }
+
+    /**
+     * 读取计数 Hash 中的多个字段，Key 不存在或 Redis 不可用时返回null
+     */
+    private List<Integer> read(String key, Object... fields) {
+        List<Object> hashKeys = new ArrayList<>();
+        for (Object field : fields) {
+            hashKeys.add(String.valueOf(field));
+        }
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(key, hashKeys);
+            if (values.stream().allMatch(value -> value == null)) {
+                return null;
+            }
+            List<Integer> counts = new ArrayList<>(values.size());
+            for (Object value : values) {
+                counts.add(value == null ? 0 : Math.max(0, Integer.parseInt((String) value)));
+            }
+            return counts;
+        } catch (Exception e) {
+            log.error("读取订单计数器失败：{}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在事务中调用时提交后执行，计数器失败不影响业务
+     */
+    private void afterCommit(Runnable runnable) {
+        Runnable safe = () -> {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                log.error("更新订单计数器失败", e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safe.run();
+                }
+            });
+        } else {
+            safe.run();
+        }
+    }
+}
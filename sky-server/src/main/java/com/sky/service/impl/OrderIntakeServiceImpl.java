@@ -0,0 +1,198 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.RedisConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.AddressBook;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.AddressBookBusinessException;
+import com.sky.exception.BaseException;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.AddressBookMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.OrderIntakeProperties;
+import com.sky.service.OrderIntakeService;
+import com.sky.service.OrderService;
+import com.sky.service.OutboxService;
+import com.sky.utils.SnowflakeIdGenerator;
+import com.sky.vo.OrderIntakeVO;
+import com.sky.vo.OrderSubmitVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步下单
+ * 高峰期下单接口只校验地址和购物车，生成订单号作为排队凭证后投递到下单队列；
+ * 固定数量的消费者按数据库能承受的速度写入订单，客户端凭排队凭证查询下单结果
+ * 下单消息写入发件箱（一条轻量的插入），由后台任务可靠投递，进程重启或 broker 暂时不可用都不会丢失
+ */
+@Service
+@Slf4j
+public class OrderIntakeServiceImpl implements OrderIntakeService {
+
+    @Autowired
+    private OrderIntakeProperties orderIntakeProperties;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private AddressBookMapper addressBookMapper;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 是否开启异步下单
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return orderIntakeProperties.isEnabled();
+    }
+
+    /**
+     * 受理下单请求：只做轻量校验，投递到下单队列后立即返回排队凭证
+     * 返回的订单号即排队凭证，订单id为空，需凭订单号查询下单结果
+     *
+     * @param ordersSubmitDTO
+     * @return
+     */
+    public OrderSubmitVO accept(OrdersSubmitDTO ordersSubmitDTO) {
+        Long userId = BaseContext.getCurrentId();
+
+        AddressBook addressBook = addressBookMapper.getById(ordersSubmitDTO.getAddressBookId());
+        if (addressBook == null) {
+            throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
+        }
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.setUserId(userId);
+        List<ShoppingCart> carts = shoppingCartMapper.list(shoppingCart);
+        if (carts == null || carts.isEmpty()) {
+            throw new AddressBookBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
+        }
+
+        String ticket = snowflakeIdGenerator.nextNumber();
+        LocalDateTime now = LocalDateTime.now();
+        saveResult(userId, OrderIntakeVO.builder()
+                .ticket(ticket)
+                .status(OrderIntakeVO.QUEUED)
+                .orderAmount(ordersSubmitDTO.getAmount())
+                .orderTime(now)
+                .build());
+
+        JSONObject message = new JSONObject();
+        message.put("userId", userId);
+        message.put("ticket", ticket);
+        message.put("order", ordersSubmitDTO);
+        try {
+            outboxService.save("order.direct", "order.intake", message.toJSONString());
+        } catch (Exception e) {
+            // 没有写入发件箱的请求不会被处理，排队结果直接记为失败
+            saveResult(userId, failed(ticket, MessageConstant.UNKNOWN_ERROR));
+            throw e;
+        }
+        log.info("下单请求已受理，排队凭证：{}", ticket);
+
+        return OrderSubmitVO.builder()
+                .orderNumber(ticket)
+                .orderAmount(ordersSubmitDTO.getAmount())
+                .orderTime(now)
+                .build();
+    }
+
+    /**
+     * 消费下单队列，真正写入订单
+     * 消息可能重复投递，订单号已存在时直接记为成功；
+     * 并发消费同一凭证时由订单号唯一索引兜底，插入冲突的一方读取已提交的订单同样记为成功
+     *
+     * @param userId
+     * @param ticket
+     * @param ordersSubmitDTO
+     */
+    public void process(Long userId, String ticket, OrdersSubmitDTO ordersSubmitDTO) {
+        Orders existing = orderMapper.getByNumber(ticket);
+        if (existing != null) {
+            saveResult(userId, success(ticket, existing.getId(), existing.getAmount(), existing.getOrderTime()));
+            return;
+        }
+
+        BaseContext.setCurrentId(userId);
+        try {
+            OrderSubmitVO vo = orderService.submit(ordersSubmitDTO, ticket);
+            saveResult(userId, success(ticket, vo.getId(), vo.getOrderAmount(), vo.getOrderTime()));
+        } catch (DuplicateKeyException e) {
+            existing = orderMapper.getByNumber(ticket);
+            log.info("重复的下单消息，排队凭证：{}，订单已由其它消费者写入", ticket);
+            saveResult(userId, success(ticket, existing.getId(), existing.getAmount(), existing.getOrderTime()));
+        } catch (BaseException e) {
+            log.info("异步下单失败，排队凭证：{}，原因：{}", ticket, e.getMessage());
+            saveResult(userId, failed(ticket, e.getMessage()));
+        } catch (Exception e) {
+            // 事务已回滚、购物车仍在，用户可以重新下单，不重新入队避免反复失败
+            log.error("异步下单异常，排队凭证：{}", ticket, e);
+            saveResult(userId, failed(ticket, MessageConstant.UNKNOWN_ERROR));
+        } finally {
+            BaseContext.removeCurrentId();
+        }
+    }
+
+    /**
+     * 查询受理结果
+     *
+     * @param ticket
+     * @return
+     */
+    public OrderIntakeVO getResult(String ticket) {
+        String value = stringRedisTemplate.opsForValue().get(intakeKey(BaseContext.getCurrentId(), ticket));
+        if (value == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_INTAKE_NOT_FOUND);
+        }
+        return JSON.parseObject(value, OrderIntakeVO.class);
+    }
+
+    private OrderIntakeVO success(String ticket, Long orderId, BigDecimal amount, LocalDateTime orderTime) {
+        return OrderIntakeVO.builder()
+                .ticket(ticket)
+                .status(OrderIntakeVO.SUCCESS)
+                .orderId(orderId)
+                .orderAmount(amount)
+                .orderTime(orderTime)
+                .build();
+    }
+
+    private OrderIntakeVO failed(String ticket, String message) {
+        return OrderIntakeVO.builder()
+                .ticket(ticket)
+                .status(OrderIntakeVO.FAILED)
+                .message(message)
+                .build();
+    }
+
+    private void saveResult(Long userId, OrderIntakeVO vo) {
+        stringRedisTemplate.opsForValue().set(intakeKey(userId, vo.getTicket()), JSON.toJSONString(vo),
+                orderIntakeProperties.getTicketExpireMinutes(), TimeUnit.MINUTES);
+    }
+
+    private String intakeKey(Long userId, String ticket) {
+        return RedisConstant.ORDER_INTAKE_KEY + userId + ":" + ticket;
+    }
+}
@@ -0,0 +1,315 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderSearchProperties;
+import com.sky.service.OrderSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订单号/手机号的进程内三元组倒排索引
+ * 每个订单按写入顺序分配一个槽位，倒排表里保存槽位，天然有序，查询时按最短的倒排表开始求交集，
+ * 再用原文校验一遍（三元组都命中不代表子串命中），得到的订单id交给数据库按主键查询
+ * 订单号和手机号下单后不会再修改，订单状态等条件由主键查询时过滤，因此只需同步新增的订单
+ * 只索引最近 windowDays 天的订单，起始时间早于窗口的查询退回 like 查询；
+ * 索引覆盖的时间超出窗口一天后在后台线程重建，重建完成后替换，过期订单随旧索引一起释放
+ */
+@Service
+@Slf4j
+public class OrderSearchServiceImpl implements OrderSearchService {
+
+    private static final int GRAM = 3;
+
+    @Autowired
+    private OrderSearchProperties orderSearchProperties;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 当前索引，首次构建完成前为null，不使用索引
+    private Index index;
+
+    // 后台构建线程是否在运行
+    private volatile boolean building;
+    // 上一次同步开始的时间
+    private LocalDateTime lastSyncTime;
+
+    /**
+     * 按订单号、手机号子串搜索订单id
+     *
+     * @param number    订单号子串，可为空
+     * @param phone     手机号子串，可为空
+     * @param beginTime 查询的下单起始时间，为空或早于索引覆盖范围时无法使用索引
+     * @return 命中的订单id（新订单在前）；索引不可用或无法使用索引时返回null，由调用方退回 like 查询
+     */
+    public List<Long> search(String number, String phone, LocalDateTime beginTime) {
+        if (!orderSearchProperties.isEnabled()) {
+            return null;
+        }
+        number = trimToNull(number);
+        phone = trimToNull(phone);
+        // 少于三个字符无法拆出三元组
+        if ((number == null && phone == null)
+                || (number != null && number.length() < GRAM)
+                || (phone != null && phone.length() < GRAM)) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Index index = this.index;
+            if (index == null || beginTime == null || beginTime.isBefore(index.since)) {
+                return null;
+            }
+            List<Postings> postingsList = new ArrayList<>();
+            if (!collect(index.numberGrams, number, postingsList) || !collect(index.phoneGrams, phone, postingsList)) {
+                return new ArrayList<>();
+            }
+            postingsList.sort(Comparator.comparingInt(postings -> postings.size));
+
+            // 从最短的倒排表开始求交集
+            Postings first = postingsList.get(0);
+            int[] candidates = Arrays.copyOf(first.slots, first.size);
+            int count = first.size;
+            for (int i = 1; i < postingsList.size() && count > 0; i++) {
+                count = intersect(candidates, count, postingsList.get(i));
+            }
+
+            // 校验原文，槽位越大订单越新
+            List<Long> result = new ArrayList<>();
+            for (int i = count - 1; i >= 0; i--) {
+                int slot = candidates[i];
+                if (number != null && !index.numbers[slot].contains(number)) {
+                    continue;
+                }
+                if (phone != null && (index.phones[slot] == null || !index.phones[slot].contains(phone))) {
+                    continue;
+                }
+                if (result.size() >= orderSearchProperties.getMaxResults()) {
+                    return null;
+                }
+                result.add(index.orderIds[slot]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新订单写入索引
+     *
+     * @param orders
+     */
+    public void add(Orders orders) {
+        if (!orderSearchProperties.isEnabled() || orders.getNumber() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.add(orders);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 增量同步其它实例新增的订单；尚未构建或需要淘汰过期订单时在后台线程构建新索引，不占用调度线程
+     */
+    public synchronized void sync() {
+        if (!orderSearchProperties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = now.minusDays(orderSearchProperties.getWindowDays());
+        Index current = index;
+        if (!building && (current == null || current.since.plusDays(1).isBefore(windowStart))) {
+            building = true;
+            Thread thread = new Thread(() -> build(windowStart), "order-search-build");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        if (current == null) {
+            return;
+        }
+
+        // 按下单时间向前多查一段，覆盖事务提交较晚的订单，已存在的订单会被跳过
+        LocalDateTime since = lastSyncTime.minusSeconds(orderSearchProperties.getSyncLookbackSeconds());
+        for (Orders orders : orderMapper.listForSearchIndexSince(since)) {
+            add(orders);
+        }
+        lastSyncTime = now;
+    }
+
+    /**
+     * 按id分批加载窗口内的订单构建新索引，完成后替换当前索引
+     */
+    private void build(LocalDateTime since) {
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime buildTime = LocalDateTime.now();
+            Index built = new Index(since);
+            long lastId = 0;
+            List<Orders> batch;
+            do {
+                batch = orderMapper.listForSearchIndex(lastId, since, orderSearchProperties.getLoadBatchSize());
+                for (Orders orders : batch) {
+                    built.add(orders);
+                    lastId = orders.getId();
+                }
+            } while (batch.size() == orderSearchProperties.getLoadBatchSize());
+
+            // 与增量同步互斥：下一次同步从构建开始的时间补齐构建期间新增的订单
+            synchronized (this) {
+                lock.writeLock().lock();
+                try {
+                    index = built;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                lastSyncTime = buildTime;
+            }
+            log.info("订单搜索索引构建完成，起始时间：{}，订单数：{}，耗时：{}ms",
+                    since, built.size, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 下一次同步时重新构建
+            log.error("构建订单搜索索引失败", e);
+        } finally {
+            building = false;
+        }
+    }
+
+    /**
+     * 取出文本所有三元组的倒排表，任意一个三元组没有倒排表说明不可能命中
+     */
+    private boolean collect(Map<String, Postings> grams, String text, List<Postings> postingsList) {
+        if (text == null) {
+            return true;
+        }
+        for (String gram : grams(text)) {
+            Postings postings = grams.get(gram);
+            if (postings == null) {
+                return false;
+            }
+            postingsList.add(postings);
+        }
+        return true;
+    }
+
+    private void index(Map<String, Postings> grams, String text, int slot) {
+        if (text == null) {
+            return;
+        }
+        for (String gram : grams(text)) {
+            grams.computeIfAbsent(gram, k -> new Postings()).add(slot);
+        }
+    }
+
+    private Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * 有序数组求交集，结果写回 candidates，返回交集大小
+     */
+    private int intersect(int[] candidates, int count, Postings postings) {
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < count && j < postings.size) {
+            if (candidates[i] < postings.slots[j]) {
+                i++;
+            } else if (candidates[i] > postings.slots[j]) {
+                j++;
+            } else {
+                candidates[k++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+        return k;
+    }
+
+    private String trimToNull(String text) {
+        if (text == null) {
+            return null;
+        }
+        text = text.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * 一份完整的索引：覆盖 since 之后下单的订单
+     */
+    private class Index {
+
+        private final LocalDateTime since;
+        private final Map<String, Postings> numberGrams = new HashMap<>();
+        private final Map<String, Postings> phoneGrams = new HashMap<>();
+        // 订单id -> 槽位
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private long[] orderIds = new long[1024];
+        private String[] numbers = new String[1024];
+        private String[] phones = new String[1024];
+        private int size;
+
+        private Index(LocalDateTime since) {
+            this.since = since;
+        }
+
+        private void add(Orders orders) {
+            if (slots.containsKey(orders.getId())) {
+                return;
+            }
+            int slot = size++;
+            if (slot == orderIds.length) {
+                int capacity = orderIds.length * 2;
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+                phones = Arrays.copyOf(phones, capacity);
+            }
+            orderIds[slot] = orders.getId();
+            numbers[slot] = orders.getNumber();
+            phones[slot] = orders.getPhone();
+            slots.put(orders.getId(), slot);
+
+            index(numberGrams, orders.getNumber(), slot);
+            index(phoneGrams, orders.getPhone(), slot);
+        }
+    }
+
+    /**
+     * 倒排表：槽位按写入顺序递增
+     */
+    private static class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package com.sky.service.impl;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.Task.AddressGeocodeTask;
+import com.sky.constant.DelayConstant;
 import com.sky.constant.MessageConstant;
 import com.sky.constant.RedisConstant;
 import com.sky.constant.WebSocketConstant;
@@ -12,17 +13,29 @@ import com.sky.context.BaseContext;
 import com.sky.dto.*;
 import com.sky.entity.*;
 import com.sky.exception.AddressBookBusinessException;
+import com.sky.exception.BaseException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.mapper.AddressBookMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.OrderDetailMapper;
 import com.sky.mapper.ShoppingCartMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.properties.ShopProperties;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.service.DeliveryZoneService;
+import com.sky.service.GeoService;
+import com.sky.service.OrderCounterService;
+import com.sky.service.OrderSearchService;
 import com.sky.service.OrderService;
-import com.sky.utils.HttpClientUtil;
+import com.sky.service.OrderTimerService;
+import com.sky.service.OutboxService;
+import com.sky.service.PriceCatalogService;
+import com.sky.service.StockService;
+import com.sky.utils.SnowflakeIdGenerator;
 import com.sky.utils.WeChatPayUtil;
+import com.sky.vo.OrderBatchResultVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
@@ -30,24 +43,25 @@ import com.sky.vo.OrderVO;
 import com.sky.websocket.WebSocketServer;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
-import java.beans.Transient;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -55,6 +69,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    // 游标分页：游标中下单时间与id之间的分隔符
+    private static final String CURSOR_SEPARATOR = "_";
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     @Autowired
     private ShoppingCartMapper shoppingCartMapper;
     @Autowired
@@ -67,14 +86,30 @@ public class OrderServiceImpl implements OrderService {
     private UserMapper userMapper;
     @Autowired
     private WeChatPayUtil weChatPayUtil;
-    @Value("${sky.shop.address}")
-    private String shopAddress;
-    @Value("${sky.baidu.ak}")
-    private String baiduAk;
+    @Autowired
+    private GeoService geoService;
+    @Autowired
+    private DeliveryZoneService deliveryZoneService;
+    @Autowired
+    private AddressGeocodeTask addressGeocodeTask;
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
     @Autowired
     private WebSocketServer webSocketServer;
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OrderTimerService orderTimerService;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private OrderCounterService orderCounterService;
+    @Autowired
+    private OrderSearchService orderSearchService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private PriceCatalogService priceCatalogService;
+    @Autowired
+    private ShopProperties shopProperties;
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
@@ -85,8 +120,22 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     @Override
-    @Transient
+    @Transactional
     public OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO) {
+        //生成订单号（雪花算法，全局唯一且按时间递增）
+        return submit(ordersSubmitDTO, snowflakeIdGenerator.nextNumber());
+    }
+
+    /**
+     * 使用指定的订单号下单
+     *
+     * @param ordersSubmitDTO
+     * @param orderNumber
+     * @return
+     */
+    @Override
+    @Transactional
+    public OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO, String orderNumber) {
         //检查地址
         Long addressBookId = ordersSubmitDTO.getAddressBookId();
         AddressBook addressBook = addressBookMapper.getById(addressBookId);
@@ -94,25 +143,45 @@ public class OrderServiceImpl implements OrderService {
             throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
         }
 
-        // 配送距离校验
-        // 拼接用户的完整收货地址 (省+市+区+详细地址)
-        String userAddress = addressBook.getProvinceName() +
-                addressBook.getCityName() +
-                addressBook.getDistrictName() +
-                addressBook.getDetail();
-
-        //  插入自定义配送距离校验函数
-        checkOutOfRange(userAddress);
+        // 先发起收货地址坐标解析（已回填坐标时立即完成），与下面的购物车查询并发进行
+        CompletableFuture<String> userCoordinate = resolveCoordinate(addressBook);
 
         //获取并检查用户的购物车
         Long userId = BaseContext.getCurrentId();
         ShoppingCart shoppingCart = new ShoppingCart();
         shoppingCart.setUserId(userId);
         List<ShoppingCart> carts = shoppingCartMapper.list(shoppingCart);
-        if (carts == null) {
+        if (carts == null || carts.isEmpty()) {
             throw new AddressBookBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
 
+        //按价格目录计价，一次遍历购物车生成订单明细，不逐项查库
+        List<OrderDetail> orderDetails = new ArrayList<>(carts.size());
+        BigDecimal itemAmount = BigDecimal.ZERO;
+        int quantity = 0;
+        for (ShoppingCart cart : carts) {
+            BigDecimal price = priceCatalogService.getPrice(cart);
+            if (price == null) {
+                throw new OrderBusinessException(MessageConstant.ITEM_NOT_ON_SALE + "：" + cart.getName());
+            }
+            OrderDetail orderDetail = new OrderDetail();
+            BeanUtils.copyProperties(cart, orderDetail);
+            orderDetail.setAmount(price);
+            orderDetails.add(orderDetail);
+            itemAmount = itemAmount.add(price.multiply(BigDecimal.valueOf(cart.getNumber())));
+            quantity += cart.getNumber();
+        }
+        BigDecimal packAmount = shopProperties.getPackFee().multiply(BigDecimal.valueOf(quantity));
+        BigDecimal amount = itemAmount.add(packAmount).add(shopProperties.getDeliveryFee());
+        //校验前端计算的金额，不一致说明下单期间价格有调整
+        if (ordersSubmitDTO.getAmount() != null && ordersSubmitDTO.getAmount().compareTo(amount) != 0) {
+            log.info("订单金额校验失败，前端金额：{}，实际金额：{}", ordersSubmitDTO.getAmount(), amount);
+            throw new OrderBusinessException(MessageConstant.ORDER_AMOUNT_CHANGED);
+        }
+
+        // 配送距离校验
+        checkOutOfRange(userCoordinate);
+
 
         //创建订单
         Orders orders = new Orders();
@@ -133,30 +202,35 @@ public class OrderServiceImpl implements OrderService {
         // 修复：设置用户名
         orders.setConsignee(addressBook.getConsignee());
         orders.setPhone(addressBook.getPhone());
-        //生成订单号
-        String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(1000, 10000); // 生成 1000-9999 之间的数
-        String orderNumber = time + random;
         orders.setNumber(orderNumber);
-        orderMapper.insert(orders);
+        //金额以服务端计算为准
+        orders.setAmount(amount);
+        orders.setPackAmount(packAmount);
 
-        // 【新增逻辑】下单成功后，立刻将订单ID发到10秒延迟队列
-        // 参数1: 正常交换机名称
-        // 参数2: 10秒队列的路由键
-        // 参数3: 要发送的消息内容（只发订单ID即可，越轻量越好）
-        log.info("订单 {} 提交成功，准备发送10秒延迟检测消息", orders.getId());
-        rabbitTemplate.convertAndSend("order.direct", "order.delay.10s", orders.getId());
+        //先写订单：订单号唯一，重复提交同一订单号时在这里失败，不会再预占一次库存
+        orderMapper.insert(orders);
+        //预占库存，后续步骤失败导致事务回滚时自动归还
+        stockService.reserve(orders.getNumber(), carts);
 
-        //创建详细订单信息列表
-        List<OrderDetail> orderDetails = new ArrayList<>();
-        for (ShoppingCart cart : carts) {
-            OrderDetail orderDetail = new OrderDetail();
-            BeanUtils.copyProperties(cart, orderDetail);
+        //回填订单明细的订单id
+        for (OrderDetail orderDetail : orderDetails) {
             orderDetail.setOrderId(orders.getId());
-            orderDetails.add(orderDetail);
         }
         orderMapper.insertOrderDetailBatch(orderDetails);
 
+        // 事务提交后更新订单计数器、写入订单搜索索引
+        orderCounterService.created(orders);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderSearchService.add(orders);
+            }
+        });
+
+        // 开始支付超时计时，事务提交后生效；下单失败回滚时不会产生任务
+        log.info("订单 {} 提交成功，开始支付超时计时", orders.getId());
+        orderTimerService.schedule(DelayConstant.PAY_TIMEOUT, orders.getId(), DelayConstant.PAY_TIMEOUT_MILLIS);
+
         //情空购物车
         shoppingCartMapper.deleteByUserId(userId);
         //返回结果
@@ -217,21 +291,145 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param outTradeNo
      */
+    @Transactional
     public void paySuccess(String outTradeNo) {
+        paySuccess(outTradeNo, null);
+    }
+
+    /**
+     * 处理微信支付成功通知
+     * 微信会重复通知：已处理过的交易号在 Redis 中直接跳过；
+     * 并发到达的重复通知由条件更新兜底，只有把订单从待付款改为待接单的那一次才发送来单提醒
+     *
+     * @param outTradeNo    商户订单号
+     * @param transactionId 微信支付交易号
+     */
+    @Transactional
+    public void paySuccess(String outTradeNo, String transactionId) {
+        String transactionKey = transactionId == null ? null : RedisConstant.PAY_TRANSACTION_KEY + transactionId;
+        if (transactionKey != null && isProcessed(transactionKey)) {
+            log.info("重复的支付通知，交易号：{}", transactionId);
+            return;
+        }
+
+        // 只有待付款的订单才会被修改为待接单、已支付
+        int updated = orderMapper.paySuccessByNumber(outTradeNo, LocalDateTime.now());
+
+        // 无论本次是否修改成功，该交易都已处理完毕，提交后记录交易号
+        if (transactionKey != null) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        markProcessed(transactionKey);
+                    }
+                });
+            } else {
+                markProcessed(transactionKey);
+            }
+        }
+        if (updated == 0) {
+            // 订单可能已被支付超时等原因取消，用户的钱却已经付了，需要退款
+            if (refundCancelled(Collections.singletonList(outTradeNo)) == 0) {
+                log.info("订单 {} 不是待付款状态，忽略支付通知", outTradeNo);
+            }
+            return;
+        }
 
         // 根据订单号查询订单
         Orders ordersDB = orderMapper.getByNumber(outTradeNo);
+        orderCounterService.transited(Collections.singletonList(ordersDB.getId()), Orders.TO_BE_CONFIRMED);
+        orderTimerService.cancel(DelayConstant.PAY_TIMEOUT, Collections.singletonList(ordersDB.getId()));
+        sendNewOrderReminder(ordersDB);
+    }
 
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
-        Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
-                .payStatus(Orders.PAID)
-                .checkoutTime(LocalDateTime.now())
-                .build();
+    /**
+     * 批量处理支付成功通知
+     * 先锁定仍为待付款的订单，再用一条语句批量修改状态，整批只占用一个事务
+     *
+     * @param payments 商户订单号 -> 微信支付交易号
+     */
+    @Transactional
+    public void paySuccessBatch(Map<String, String> payments) {
+        // 过滤掉已处理过的交易号
+        Map<String, String> pending = new LinkedHashMap<>();
+        List<String> transactionKeys = new ArrayList<>();
+        List<String> cached = null;
+        try {
+            List<String> keys = payments.values().stream()
+                    .map(transactionId -> RedisConstant.PAY_TRANSACTION_KEY + transactionId)
+                    .collect(Collectors.toList());
+            cached = redisTemplate.opsForValue().multiGet(keys);
+        } catch (Exception e) {
+            // Redis 不可用时由条件更新保证幂等
+            log.error("批量查询支付交易号失败", e);
+        }
+        int i = 0;
+        for (Map.Entry<String, String> entry : payments.entrySet()) {
+            String transactionKey = RedisConstant.PAY_TRANSACTION_KEY + entry.getValue();
+            if (cached != null && cached.get(i++) != null) {
+                log.info("重复的支付通知，交易号：{}", entry.getValue());
+                continue;
+            }
+            pending.put(entry.getKey(), entry.getValue());
+            transactionKeys.add(transactionKey);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
 
-        orderMapper.update(orders);
+        List<Orders> ordersList = orderMapper.listPendingByNumbersForUpdate(new ArrayList<>(pending.keySet()));
+        if (!ordersList.isEmpty()) {
+            List<Long> ids = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+            orderMapper.paySuccessByIds(ids, LocalDateTime.now());
+            orderCounterService.transited(ids, Orders.TO_BE_CONFIRMED);
+            orderTimerService.cancel(DelayConstant.PAY_TIMEOUT, ids);
+            ordersList.forEach(this::sendNewOrderReminder);
+        }
+        // 不是待付款的订单中，已取消的需要退款
+        int refunded = 0;
+        if (ordersList.size() < pending.size()) {
+            Set<String> paidNumbers = ordersList.stream().map(Orders::getNumber).collect(Collectors.toSet());
+            refunded = refundCancelled(pending.keySet().stream()
+                    .filter(number -> !paidNumbers.contains(number))
+                    .collect(Collectors.toList()));
+        }
+        log.info("批量处理支付通知：{} 条，修改订单：{} 条，取消后支付待退款：{} 条", pending.size(), ordersList.size(), refunded);
+
+        // 提交后记录交易号
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                transactionKeys.forEach(transactionKey -> markProcessed(transactionKey));
+            }
+        });
+    }
+
+    /**
+     * 已取消后才收到支付成功通知的订单标记为退款并报警，随后交易号照常记为已处理
+     * 注：如果是真实企业项目，这里还要调用微信支付的申请退款API
+     *
+     * @param numbers 商户订单号
+     * @return 标记为退款的订单数
+     */
+    private int refundCancelled(List<String> numbers) {
+        List<Orders> ordersList = orderMapper.listCancelledUnpaidByNumbersForUpdate(numbers);
+        if (ordersList.isEmpty()) {
+            return 0;
+        }
+        orderMapper.refundCancelledByIds(ordersList.stream().map(Orders::getId).collect(Collectors.toList()),
+                LocalDateTime.now());
+        ordersList.forEach(orders -> log.error("订单 {} 已取消（{}）后收到支付成功通知，已标记为退款，请及时处理退款",
+                orders.getNumber(), orders.getCancelReason()));
+        return ordersList.size();
+    }
 
+    /**
+     * 来单提醒写入发件箱，事务提交后推送到广播交换机
+     *
+     * @param ordersDB
+     */
+    private void sendNewOrderReminder(Orders ordersDB) {
         //发送来单提醒
         //构造订单消息json字符串
         //构造消息map
@@ -243,9 +441,27 @@ public class OrderServiceImpl implements OrderService {
         //转换为json字符串
         String json = JSON.toJSONString(map);
 
-        //向广播交换机发送消息
-        log.info("【客户催单】将催单消息推送到 MQ 广播中心...");
-        rabbitTemplate.convertAndSend("websocket.fanout", "", json);
+        //写入发件箱，事务提交后推送到广播交换机
+        log.info("【来单提醒】将新订单消息写入发件箱...");
+        outboxService.save("websocket.fanout", "", json);
+    }
+
+    private boolean isProcessed(String transactionKey) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(transactionKey));
+        } catch (Exception e) {
+            // Redis 不可用时由条件更新保证幂等
+            log.error("查询支付交易号失败：{}", transactionKey, e);
+            return false;
+        }
+    }
+
+    private void markProcessed(String transactionKey) {
+        try {
+            redisTemplate.opsForValue().set(transactionKey, "1", RedisConstant.PAY_TRANSACTION_EXPIRE_DAYS, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.error("记录支付交易号失败：{}", transactionKey, e);
+        }
     }
 
     /**
@@ -255,19 +471,115 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public PageResult pageQuery(OrdersPageQueryDTO ordersPageQueryDTO) {
+        if (!applySearchIndex(ordersPageQueryDTO)) {
+            return new PageResult(0, new ArrayList<>());
+        }
         PageHelper.startPage(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
         long total = page.getTotal();
         List<Orders> records = page.getResult();
 
-        // 将Order和OrderDetail进行组装
-        List<OrderVO> list = new ArrayList<>();
+        // 一次查询出整页订单的明细，组装OrderVO和订单菜品信息字符串
+        List<OrderVO> list = assembleOrderVOs(records);
+        return new PageResult(total, list);
+    }
+
+    /**
+     * 游标分页搜索查询订单
+     * 按 (下单时间, id) 定位到上一页最后一条之后继续查，翻到多深都只扫描一页的数据，也不执行 count
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public CursorPageResult cursorQuery(OrdersPageQueryDTO ordersPageQueryDTO) {
+        int pageSize = ordersPageQueryDTO.getPageSize();
+        if (pageSize <= 0 || pageSize > MAX_CURSOR_PAGE_SIZE) {
+            ordersPageQueryDTO.setPageSize(pageSize <= 0 ? DEFAULT_CURSOR_PAGE_SIZE : MAX_CURSOR_PAGE_SIZE);
+        }
+        parseCursor(ordersPageQueryDTO);
+        if (!applySearchIndex(ordersPageQueryDTO)) {
+            return new CursorPageResult(new ArrayList<>(), null);
+        }
+
+        // 多查出的一条只用于判断是否还有下一页
+        List<Orders> records = orderMapper.pageQueryByCursor(ordersPageQueryDTO);
+        String nextCursor = null;
+        if (records.size() > ordersPageQueryDTO.getPageSize()) {
+            records = records.subList(0, ordersPageQueryDTO.getPageSize());
+            Orders last = records.get(records.size() - 1);
+            nextCursor = last.getOrderTime() + CURSOR_SEPARATOR + last.getId();
+        }
+        return new CursorPageResult(assembleOrderVOs(records), nextCursor);
+    }
+
+    /**
+     * 按订单号/手机号搜索时先查搜索索引，用命中的订单id代替 like 条件
+     * 索引不可用、或起始时间超出索引覆盖范围时保留 like 条件
+     *
+     * @param ordersPageQueryDTO
+     * @return 索引确定没有命中时返回false
+     */
+    private boolean applySearchIndex(OrdersPageQueryDTO ordersPageQueryDTO) {
+        ordersPageQueryDTO.setIds(null);
+        String number = ordersPageQueryDTO.getNumber();
+        String phone = ordersPageQueryDTO.getPhone();
+        if ((number == null || number.isEmpty()) && (phone == null || phone.isEmpty())) {
+            return true;
+        }
+        List<Long> ids = orderSearchService.search(number, phone, ordersPageQueryDTO.getBeginTime());
+        if (ids == null) {
+            return true;
+        }
+        if (ids.isEmpty()) {
+            return false;
+        }
+        ordersPageQueryDTO.setIds(ids);
+        ordersPageQueryDTO.setNumber(null);
+        ordersPageQueryDTO.setPhone(null);
+        return true;
+    }
+
+    /**
+     * 解析游标：上一页最后一条订单的 下单时间_id
+     */
+    private void parseCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        String cursor = ordersPageQueryDTO.getCursor();
+        ordersPageQueryDTO.setLastOrderTime(null);
+        ordersPageQueryDTO.setLastId(null);
+        if (cursor == null || cursor.isEmpty()) {
+            return;
+        }
+        int index = cursor.lastIndexOf(CURSOR_SEPARATOR);
+        try {
+            ordersPageQueryDTO.setLastOrderTime(LocalDateTime.parse(cursor.substring(0, index)));
+            ordersPageQueryDTO.setLastId(Long.valueOf(cursor.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new OrderBusinessException(MessageConstant.PAGE_CURSOR_INVALID);
+        }
+    }
+
+    /**
+     * 将一页订单和它们的明细组装为OrderVO
+     * 明细通过一次 order_id in (...) 查询取出，在内存中按订单分组
+     *
+     * @param records 一页订单
+     * @return
+     */
+    private List<OrderVO> assembleOrderVOs(List<Orders> records) {
+        if (records == null || records.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> orderIds = records.stream().map(Orders::getId).collect(Collectors.toList());
+        Map<Long, List<OrderDetail>> detailMap = orderDetailMapper.listByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+
+        List<OrderVO> list = new ArrayList<>(records.size());
         for (Orders orders : records) {
             OrderVO orderVO = new OrderVO();
             BeanUtils.copyProperties(orders, orderVO);
 
-            // 根据订单id查询订单详情
-            List<OrderDetail> orderDetailList = orderDetailMapper.listByOrderId(orders.getId());
+            List<OrderDetail> orderDetailList = detailMap.getOrDefault(orders.getId(), Collections.emptyList());
             orderVO.setOrderDetailList(orderDetailList);
 
             // 组装订单菜品信息字符串
@@ -279,7 +591,7 @@ public class OrderServiceImpl implements OrderService {
 
             list.add(orderVO);
         }
-        return new PageResult(total, list);
+        return list;
     }
 
     /**
@@ -329,7 +641,12 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderStatisticsVO getOrderStatistics() {
-        OrderStatisticsVO statistics = orderMapper.getOrderStatistics();
+        // 优先读取订单计数器，计数器不可用时扫描订单表
+        OrderStatisticsVO statistics = orderCounterService.getOrderStatistics();
+        if (statistics != null) {
+            return statistics;
+        }
+        statistics = orderMapper.getOrderStatistics();
 
         return statistics;
     }
@@ -353,26 +670,28 @@ public class OrderServiceImpl implements OrderService {
         // 分页条件查询
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
 
-        List<OrderVO> list = new ArrayList();
-
         // 查询出订单明细，并封装入OrderVO进行响应
-        if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
-
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.listByOrderId(orderId);
-
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
-
-                list.add(orderVO);
-            }
-        }
+        List<OrderVO> list = assembleOrderVOs(page.getResult());
         return new PageResult(page.getTotal(), list);
     }
 
+    /**
+     * 用户端订单游标分页查询
+     *
+     * @param cursor   上一页返回的游标，为空表示第一页
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    public CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setPageSize(pageSize);
+        ordersPageQueryDTO.setCursor(cursor);
+        return cursorQuery(ordersPageQueryDTO);
+    }
+
     /**
      * 查询订单详情
      *
@@ -399,25 +718,17 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void userCancelById(Long id) throws Exception {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在
-        if (ordersDB == null) {
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
-
-        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        if (ordersDB.getStatus() > 2) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 只有待付款、待接单的订单可以取消，待接单的订单已支付，支付状态同时改为退款
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
+        orders.setId(id);
+        orders.setCancelReason("用户取消");
+        orders.setCancelTime(LocalDateTime.now());
+        Orders ordersDB = transitLocked(orders, OrderTransition.USER_CANCEL);
+        orderTimerService.cancel(DelayConstant.PAY_TIMEOUT, Collections.singletonList(id));
 
-        // 订单处于待接单状态下取消，需要进行退款
-        if (ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
+        if (Orders.PAID.equals(ordersDB.getPayStatus())) {
             log.info("模拟微信退款成功，订单号：{}", ordersDB.getNumber());
             //调用微信支付退款接口
 //            weChatPayUtil.refund(
@@ -425,16 +736,10 @@ public class OrderServiceImpl implements OrderService {
 //                    ordersDB.getNumber(), //商户退款单号
 //                    new BigDecimal(0.01),//退款金额，单位 元
 //                    new BigDecimal(0.01));//原订单金额
-
-            //支付状态修改为 退款
-            orders.setPayStatus(Orders.REFUND);
         }
 
-        // 更新订单状态、取消原因、取消时间
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason("用户取消");
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        // 归还预占的库存，事务提交后生效
+        stockService.release(ordersDB.getNumber());
     }
 
     /**
@@ -445,10 +750,9 @@ public class OrderServiceImpl implements OrderService {
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
                 .build();
 
-        orderMapper.update(orders);
+        transit(orders, OrderTransition.CONFIRM);
     }
 
     /**
@@ -456,19 +760,16 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersRejectionDTO
      */
+    @Transactional
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
-
-        // 订单只有存在且状态为2（待接单）才可以拒单
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 订单只有状态为2（待接单）才可以拒单，已支付的支付状态同时改为退款
         Orders orders = new Orders();
-        //支付状态
-        Integer payStatus = ordersDB.getPayStatus();
-        if (payStatus == Orders.PAID) {
+        orders.setId(ordersRejectionDTO.getId());
+        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
+        orders.setCancelTime(LocalDateTime.now());
+        Orders ordersDB = transitLocked(orders, OrderTransition.REJECT);
+
+        if (Orders.PAID.equals(ordersDB.getPayStatus())) {
             //用户已支付，需要退款
             //模拟退款
             log.info("模拟退款成功");
@@ -479,16 +780,10 @@ public class OrderServiceImpl implements OrderService {
 //                    new BigDecimal(0.01),
 //                    new BigDecimal(0.01));
 //            log.info("申请退款：{}", refund);
-            orders.setPayStatus(Orders.REFUND);
         }
 
-        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
-        orders.setCancelTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
+        // 归还预占的库存，事务提交后生效
+        stockService.release(ordersDB.getNumber());
     }
 
     /**
@@ -496,14 +791,16 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersCancelDTO
      */
+    @Transactional
     public void cancel(OrdersCancelDTO ordersCancelDTO) throws Exception {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(ordersCancelDTO.getId());
-
+        // 管理端取消未完成的订单，已支付的支付状态同时改为退款
         Orders orders = new Orders();
-        //支付状态
-        Integer payStatus = ordersDB.getPayStatus();
-        if (payStatus == 1) {
+        orders.setId(ordersCancelDTO.getId());
+        orders.setCancelReason(ordersCancelDTO.getCancelReason());
+        orders.setCancelTime(LocalDateTime.now());
+        Orders ordersDB = transitLocked(orders, OrderTransition.CANCEL);
+
+        if (Orders.PAID.equals(ordersDB.getPayStatus())) {
             log.info("模拟微信退款成功，订单号：{}", ordersDB.getNumber());
             //用户已支付，需要退款
 //            String refund = weChatPayUtil.refund(
@@ -512,15 +809,10 @@ public class OrderServiceImpl implements OrderService {
 //                    new BigDecimal(0.01),
 //                    new BigDecimal(0.01));
 //            log.info("申请退款：{}", refund);
-            orders.setPayStatus(Orders.REFUND);
         }
 
-        // 管理端取消订单需要退款，根据订单id更新订单状态、取消原因、取消时间
-        orders.setId(ordersCancelDTO.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason(ordersCancelDTO.getCancelReason());
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        // 归还预占的库存，事务提交后生效
+        stockService.release(ordersDB.getNumber());
     }
 
     /**
@@ -528,25 +820,17 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为3
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 状态为3（已接单）的订单转为派送中
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为派送中
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-
-        orderMapper.update(orders);
+        orders.setId(id);
+        orders.setDeliveryStartTime(LocalDateTime.now());
+        transit(orders, OrderTransition.DELIVER);
 
-        // 【新增逻辑】下单成功后，立刻将订单ID发到60分钟延迟队列
-        log.info("订单 {} 提交成功，准备发送60分钟延迟检测消息", orders.getId());
-        rabbitTemplate.convertAndSend("order.direct", "order.delay.60m", orders.getId());
+        // 开始派送超时计时，事务提交后生效
+        log.info("订单 {} 开始派送，开始派送超时计时", orders.getId());
+        orderTimerService.schedule(DelayConstant.DELIVERY_TIMEOUT, orders.getId(), DelayConstant.DELIVERY_TIMEOUT_MILLIS);
 
     }
 
@@ -555,101 +839,262 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为4
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 状态为4（派送中）的订单转为完成
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为完成
-        orders.setStatus(Orders.COMPLETED);
+        orders.setId(id);
         orders.setDeliveryTime(LocalDateTime.now());
+        Orders ordersDB = transitLocked(orders, OrderTransition.COMPLETE);
+        orderTimerService.cancel(DelayConstant.DELIVERY_TIMEOUT, Collections.singletonList(id));
 
-        orderMapper.update(orders);
-
+        // 按下单日期统计销量，事务提交后更新
         List<OrderDetail> orderDetails = orderDetailMapper.listByOrderId(id);
-        LocalDate orderDate = ordersDB.getOrderTime().toLocalDate();
-        String zsetKey = RedisConstant.SALES_KEY + orderDate;
+        String zsetKey = RedisConstant.SALES_KEY + ordersDB.getOrderTime().toLocalDate();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (OrderDetail detail : orderDetails) {
+                    redisTemplate.opsForZSet().incrementScore(
+                        zsetKey,
+                        detail.getName(),
+                        detail.getNumber()
+                    );
+                }
+
+                redisTemplate.expire(zsetKey, RedisConstant.SALES_EXPIRE_DAYS, TimeUnit.DAYS);
+                log.info("订单完成，已更新商品销量 ZSET: {}", zsetKey);
+            }
+        });
+    }
 
-        for (OrderDetail detail : orderDetails) {
-            redisTemplate.opsForZSet().incrementScore(
-                zsetKey,
-                detail.getName(),
-                detail.getNumber()
-            );
-        }
+    /**
+     * 批量接单
+     *
+     * @param ids
+     * @return 每个订单的处理结果
+     */
+    @Transactional
+    public List<OrderBatchResultVO> confirmBatch(List<Long> ids) {
+        List<OrderBatchResultVO> results = new ArrayList<>();
+        transitBatch(ids, new Orders(), OrderTransition.CONFIRM, results);
+        return results;
+    }
 
-        redisTemplate.expire(zsetKey, RedisConstant.SALES_EXPIRE_DAYS, TimeUnit.DAYS);
-        log.info("订单完成，已更新商品销量 ZSET: {}", zsetKey);
+    /**
+     * 批量派送，派送超时计时批量开始
+     *
+     * @param ids
+     * @return 每个订单的处理结果
+     */
+    @Transactional
+    public List<OrderBatchResultVO> deliveryBatch(List<Long> ids) {
+        List<OrderBatchResultVO> results = new ArrayList<>();
+        Orders fields = new Orders();
+        fields.setDeliveryStartTime(LocalDateTime.now());
+        List<Orders> ordersList = transitBatch(ids, fields, OrderTransition.DELIVER, results);
+
+        List<Long> deliveredIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        log.info("批量派送 {} 个订单，开始派送超时计时", deliveredIds.size());
+        orderTimerService.scheduleBatch(DelayConstant.DELIVERY_TIMEOUT, deliveredIds, DelayConstant.DELIVERY_TIMEOUT_MILLIS);
+        return results;
     }
 
     /**
-     * 校验用户的收货地址是否超出5公里配送范围
+     * 批量完成，事务提交后通过一次管道更新商品销量 ZSET
      *
-     * @param userAddress 用户的详细收货地址
+     * @param ids
+     * @return 每个订单的处理结果
      */
-    private void checkOutOfRange(String userAddress) {
-        // 1. 调用百度地图地理编码接口，获取商家和用户的经纬度
-        String shopCoordinate = getCoordinate(shopAddress);
-        String userCoordinate = getCoordinate(userAddress);
+    @Transactional
+    public List<OrderBatchResultVO> completeBatch(List<Long> ids) {
+        List<OrderBatchResultVO> results = new ArrayList<>();
+        Orders fields = new Orders();
+        fields.setDeliveryTime(LocalDateTime.now());
+        List<Orders> ordersList = transitBatch(ids, fields, OrderTransition.COMPLETE, results);
+        if (ordersList.isEmpty()) {
+            return results;
+        }
+        orderTimerService.cancel(DelayConstant.DELIVERY_TIMEOUT,
+                ordersList.stream().map(Orders::getId).collect(Collectors.toList()));
 
-        // 2. 调用百度地图轻量级路线规划接口（骑行），计算距离
-        // 接口要求的参数格式为：纬度,经度 (lat,lng)
-        Map<String, String> map = new HashMap<>();
-        map.put("origin", shopCoordinate);
-        map.put("destination", userCoordinate);
-        map.put("ak", baiduAk);
+        // 按日期、菜品名汇总销量
+        Map<Long, LocalDate> orderDates = new HashMap<>();
+        for (Orders orders : ordersList) {
+            orderDates.put(orders.getId(), orders.getOrderTime().toLocalDate());
+        }
+        List<OrderDetail> orderDetails = orderDetailMapper.listByOrderIds(new ArrayList<>(orderDates.keySet()));
+        Map<String, Map<String, Integer>> sales = new HashMap<>();
+        for (OrderDetail detail : orderDetails) {
+            String zsetKey = RedisConstant.SALES_KEY + orderDates.get(detail.getOrderId());
+            sales.computeIfAbsent(zsetKey, k -> new HashMap<>()).merge(detail.getName(), detail.getNumber(), Integer::sum);
+        }
 
-        // 骑行路线规划接口
-        String directionUrl = "https://api.map.baidu.com/directionlite/v1/riding";
-        String responseString = HttpClientUtil.doGet(directionUrl, map);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        sales.forEach((zsetKey, counts) -> {
+                            counts.forEach((name, number) -> ops.opsForZSet().incrementScore(zsetKey, name, number));
+                            ops.expire(zsetKey, RedisConstant.SALES_EXPIRE_DAYS, TimeUnit.DAYS);
+                        });
+                        return null;
+                    }
+                });
+                log.info("批量完成订单，已更新商品销量 ZSET: {}", sales.keySet());
+            }
+        });
+        return results;
+    }
 
-        JSONObject jsonObject = JSON.parseObject(responseString);
-        if (!jsonObject.getString("status").equals("0")) {
-            throw new OrderBusinessException("配送路线规划失败");
+    /**
+     * 批量取消，已支付的订单支付状态同时改为退款，事务提交后再退款、归还预占的库存
+     *
+     * @param ordersBatchDTO
+     * @return 每个订单的处理结果
+     */
+    @Transactional
+    public List<OrderBatchResultVO> cancelBatch(OrdersBatchDTO ordersBatchDTO) {
+        List<OrderBatchResultVO> results = new ArrayList<>();
+        Orders fields = new Orders();
+        fields.setCancelReason(ordersBatchDTO.getCancelReason());
+        fields.setCancelTime(LocalDateTime.now());
+        List<Orders> ordersList = transitBatch(ordersBatchDTO.getIds(), fields, OrderTransition.CANCEL, results);
+        if (ordersList.isEmpty()) {
+            return results;
         }
 
-        // 解析出距离（单位：米）
-        JSONObject result = jsonObject.getJSONObject("result");
-        JSONArray routes = result.getJSONArray("routes");
-        Integer distance = ((JSONObject) routes.get(0)).getInteger("distance");
-
-        log.info("商家到用户的骑行距离为：{}米", distance);
+        // afterCompletion 执行时事务同步已清除，release 会立即归还；在 afterCommit 中调用则会再注册一次而不被执行
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    return;
+                }
+                for (Orders orders : ordersList) {
+                    if (Orders.PAID.equals(orders.getPayStatus())) {
+                        log.info("模拟微信退款成功，订单号：{}", orders.getNumber());
+                    }
+                    // 归还预占的库存
+                    stockService.release(orders.getNumber());
+                }
+            }
+        });
+        return results;
+    }
 
-        // 3. 校验距离是否大于5000米 (5公里)
-        if (distance > 5000) {
-            throw new OrderBusinessException("超出配送范围，下单失败");
+    /**
+     * 执行订单状态流转，当前状态不允许时抛出异常
+     *
+     * @param orders     订单id及需要一并写入的字段
+     * @param transition 状态流转
+     */
+    private void transit(Orders orders, OrderTransition transition) {
+        if (orderMapper.transit(orders, transition) == 0) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
+        orderCounterService.transited(Collections.singletonList(orders.getId()), transition.getTo());
     }
 
     /**
-     * 根据地址获取经纬度坐标 (lat,lng)
+     * 先锁定订单再执行状态流转，订单不存在或当前状态不允许时抛出异常，需在事务中调用
+     *
+     * @param orders     订单id及需要一并写入的字段
+     * @param transition 状态流转
+     * @return 流转前的订单号、状态、支付状态、下单时间
      */
-    private String getCoordinate(String address) {
-        Map<String, String> map = new HashMap<>();
-        map.put("address", address);
-        map.put("output", "json");
-        map.put("ak", baiduAk);
+    private Orders transitLocked(Orders orders, OrderTransition transition) {
+        Orders ordersDB = orderMapper.getStateByIdForUpdate(orders.getId());
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+        transit(orders, transition);
+        return ordersDB;
+    }
 
-        String geocodingUrl = "https://api.map.baidu.com/geocoding/v3";
-        String responseString = HttpClientUtil.doGet(geocodingUrl, map);
+    /**
+     * 批量执行订单状态流转：先按id顺序锁定订单，筛出当前状态允许流转的，再用一条语句批量修改
+     *
+     * @param ids        订单id列表
+     * @param fields     需要一并写入的字段
+     * @param transition 状态流转
+     * @param results    每个订单的处理结果
+     * @return 流转成功的订单（修改前的数据）
+     */
+    private List<Orders> transitBatch(List<Long> ids, Orders fields, OrderTransition transition,
+                                      List<OrderBatchResultVO> results) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        Map<Long, Orders> ordersMap = orderMapper.listByIdsForUpdate(distinctIds).stream()
+                .collect(Collectors.toMap(Orders::getId, orders -> orders));
+        List<Orders> transitable = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Orders orders = ordersMap.get(id);
+            if (orders == null) {
+                results.add(new OrderBatchResultVO(id, false, MessageConstant.ORDER_NOT_FOUND));
+            } else if (!transition.getFrom().contains(orders.getStatus())) {
+                results.add(new OrderBatchResultVO(id, false, MessageConstant.ORDER_STATUS_ERROR));
+            } else {
+                transitable.add(orders);
+                results.add(new OrderBatchResultVO(id, true, null));
+            }
+        }
 
-        JSONObject jsonObject = JSON.parseObject(responseString);
-        if (!jsonObject.getString("status").equals("0")) {
-            throw new OrderBusinessException("地址解析失败");
+        if (!transitable.isEmpty()) {
+            List<Long> transitIds = transitable.stream().map(Orders::getId).collect(Collectors.toList());
+            orderMapper.transitBatch(transitIds, fields, transition);
+            orderCounterService.transited(transitIds, transition.getTo());
         }
+        return transitable;
+    }
 
-        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
-        String lat = location.getString("lat"); // 纬度
-        String lng = location.getString("lng"); // 经度
+    /**
+     * 获取收货地址的坐标
+     *
+     * @param addressBook 用户的收货地址
+     * @return 坐标 lat,lng
+     */
+    private CompletableFuture<String> resolveCoordinate(AddressBook addressBook) {
+        if (addressBook.getLat() != null && addressBook.getLng() != null) {
+            // 保存地址时已经解析好了坐标，热路径上不再做地址解析
+            return CompletableFuture.completedFuture(addressBook.getLat() + "," + addressBook.getLng());
+        }
+        // 坐标还没回填（刚保存或解析失败），拼接完整地址 (省+市+区+详细地址) 异步解析
+        String userAddress = addressBook.getProvinceName() +
+                addressBook.getCityName() +
+                addressBook.getDistrictName() +
+                addressBook.getDetail();
+        CompletableFuture<String> coordinate = geoService.getCoordinateAsync(userAddress);
+        // 解析结果顺带回填到地址簿，只调用一次远程接口；解析失败的由定时任务补偿
+        coordinate.thenAccept(result -> addressGeocodeTask.saveCoordinate(addressBook, result));
+        return coordinate;
+    }
 
-        // 百度路线规划接口要求格式：lat,lng
-        return lat + "," + lng;
+    /**
+     * 校验用户的收货地址是否超出配送范围
+     *
+     * @param userCoordinate 用户收货地址的坐标
+     */
+    private void checkOutOfRange(CompletableFuture<String> userCoordinate) {
+        String coordinate;
+        try {
+            coordinate = userCoordinate.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BaseException) {
+                throw (BaseException) e.getCause();
+            }
+            log.error("收货地址解析失败", e);
+            throw new OrderBusinessException(MessageConstant.ADDRESS_GEOCODING_FAILED);
+        }
+        // 范围判定由本地配送网格完成，只有边界地址才会调用骑行路线接口
+        deliveryZoneService.checkOutOfRange(coordinate);
     }
 
     /**
@@ -679,8 +1124,8 @@ public class OrderServiceImpl implements OrderService {
          //直接发送难以面对多服务端架构
 
 
-         //【新架构代码】推送到 MQ 广播中心
-         log.info("【来单提醒】将新订单消息推送到 MQ 广播中心...");
-         rabbitTemplate.convertAndSend("websocket.fanout", "", json);
+         //【新架构代码】写入发件箱，由后台任务推送到 MQ 广播中心，请求线程不等待 broker
+         log.info("【客户催单】将催单消息写入发件箱...");
+         outboxService.save("websocket.fanout", "", json);
      }
 }
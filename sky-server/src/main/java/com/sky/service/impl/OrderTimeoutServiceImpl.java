@@ -0,0 +1,146 @@
+package com.sky.service.impl;
+
+import com.sky.entity.OrderTransition;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.service.OrderCounterService;
+import com.sky.service.OrderTimeoutService;
+import com.sky.service.OutboxService;
+import com.sky.service.StockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单超时处理，延迟任务无论来自 RabbitMQ 还是 Redis 都在这里执行
+ * 取消先按id顺序锁定仍可取消的订单，再用一条条件更新批量修改，重复执行、与支付通知/完成订单并发时都只会生效一次
+ */
+@Service
+@Slf4j
+public class OrderTimeoutServiceImpl implements OrderTimeoutService {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private OrderCounterService orderCounterService;
+    @Autowired
+    private OutboxService outboxService;
+
+    /**
+     * 支付超时：仍为待付款的订单自动取消
+     *
+     * @param orderId
+     */
+    @Transactional
+    public void payTimeout(Long orderId) {
+        if (payTimeoutBatch(Collections.singletonList(orderId)) > 0) {
+            log.info("【最终检测】订单 {} 满15分钟未支付，已自动取消", orderId);
+        } else {
+            log.info("【最终检测】订单 {} 已支付或已处理，不执行取消", orderId);
+        }
+    }
+
+    /**
+     * 派送超时：仍在派送中的订单自动取消
+     *
+     * @param orderId
+     */
+    @Transactional
+    public void deliveryTimeout(Long orderId) {
+        if (deliveryTimeoutBatch(Collections.singletonList(orderId)) > 0) {
+            log.info("【最终检测】订单 {} 满24小时未派送，已自动取消", orderId);
+        } else {
+            log.info("【最终检测】订单 {} 已派送或已处理，不执行取消", orderId);
+        }
+    }
+
+    /**
+     * 支付超时第一级检测：仍为待付款的订单批量转入第二级延迟队列
+     *
+     * @param orderIds
+     * @return 转入第二级的订单数
+     */
+    public int payCheckBatch(List<Long> orderIds) {
+        return forward(orderIds, Orders.PENDING_PAYMENT, "order.delay.14m");
+    }
+
+    /**
+     * 派送超时第一级检测：仍在派送中的订单批量转入第二级延迟队列
+     *
+     * @param orderIds
+     * @return 转入第二级的订单数
+     */
+    public int deliveryCheckBatch(List<Long> orderIds) {
+        return forward(orderIds, Orders.DELIVERY_IN_PROGRESS, "order.delay.23h");
+    }
+
+    /**
+     * 支付超时批量取消
+     *
+     * @param orderIds
+     * @return 取消的订单数
+     */
+    @Transactional
+    public int payTimeoutBatch(List<Long> orderIds) {
+        Orders fields = new Orders();
+        fields.setCancelReason("支付超时，系统自动取消");
+        fields.setCancelTime(LocalDateTime.now());
+        // 注：如果是真实企业项目，这里可能还要去调用微信支付的关闭订单API
+        return cancelBatch(orderIds, fields, OrderTransition.PAY_TIMEOUT);
+    }
+
+    /**
+     * 派送超时批量取消
+     *
+     * @param orderIds
+     * @return 取消的订单数
+     */
+    @Transactional
+    public int deliveryTimeoutBatch(List<Long> orderIds) {
+        Orders fields = new Orders();
+        fields.setCancelReason("派送超时，系统自动取消");
+        fields.setCancelTime(LocalDateTime.now());
+        return cancelBatch(orderIds, fields, OrderTransition.DELIVERY_TIMEOUT);
+    }
+
+    /**
+     * 筛选出仍处于指定状态的订单，一次性写入发件箱投递到下一级延迟队列
+     */
+    private int forward(List<Long> orderIds, Integer status, String routingKey) {
+        List<Long> survivors = orderMapper.listIdsByStatus(new ArrayList<>(new LinkedHashSet<>(orderIds)), status);
+        if (!survivors.isEmpty()) {
+            outboxService.saveBatch("order.direct", routingKey, survivors);
+        }
+        return survivors.size();
+    }
+
+    /**
+     * 锁定仍可取消的订单后一条语句批量取消，提交后归还预占的库存
+     */
+    private int cancelBatch(List<Long> orderIds, Orders fields, OrderTransition transition) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        // 按id顺序加行锁，锁住的订单就是随后条件更新会修改的订单
+        List<Orders> ordersList = orderMapper.listByIdsForUpdate(distinctIds).stream()
+                .filter(orders -> transition.getFrom().contains(orders.getStatus()))
+                .collect(Collectors.toList());
+        if (ordersList.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> cancelIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        orderMapper.transitBatch(cancelIds, fields, transition);
+        orderCounterService.transited(cancelIds, transition.getTo());
+        ordersList.forEach(orders -> stockService.release(orders.getNumber()));
+        return cancelIds.size();
+    }
+}
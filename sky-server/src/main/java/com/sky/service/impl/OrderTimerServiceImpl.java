@@ -0,0 +1,240 @@
+package com.sky.service.impl;
+
+import com.sky.constant.DelayConstant;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.DelayProperties;
+import com.sky.service.DelayScheduler;
+import com.sky.service.OrderTimerService;
+import com.sky.utils.TimingWheel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * 进程内时间轮 + DelayScheduler 两段式订单超时计时
+ * 绝大多数订单在本地计时期内就已支付/完成，直接取消本地计时，不再产生任何消息；
+ * 本地到期后批量查库，仍处于待付款/派送中的订单才按剩余时间交给 DelayScheduler
+ * 本地计时随进程丢失，启动时不根据订单表重建：订单表无法区分哪些订单正由其它存活实例计时，
+ * 重建会让这些订单在交接时重复交给 DelayScheduler；丢失的计时由超时订单扫描兜底，最多晚一个宽限期
+ */
+@Service
+@Slf4j
+public class OrderTimerServiceImpl implements OrderTimerService {
+
+    // 推进时间轮的最长等待时间（毫秒）
+    private static final long ADVANCE_TIMEOUT_MILLIS = 200;
+    // 每次查库筛选的最大订单数
+    private static final int HAND_OFF_BATCH_SIZE = 500;
+
+    @Autowired
+    private DelayProperties delayProperties;
+    @Autowired
+    private DelayScheduler delayScheduler;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    // 主题 -> 本地计时时长
+    private final Map<String, Long> localMillis = new HashMap<>();
+    // 主题 -> 本地到期时仍需交接的订单状态
+    private final Map<String, Integer> statuses = new HashMap<>();
+
+    // 主题:订单id -> 本地计时句柄
+    private final Map<String, TimingWheel.Timeout<Timer>> timeouts = new ConcurrentHashMap<>();
+    // 本地已到期、等待交接的任务
+    private final Queue<Timer> expired = new ConcurrentLinkedQueue<>();
+
+    // 未启用时间轮时为null
+    private TimingWheel<Timer> timingWheel;
+    private Thread reaper;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        localMillis.put(DelayConstant.PAY_TIMEOUT, delayProperties.getPayLocalMillis());
+        localMillis.put(DelayConstant.DELIVERY_TIMEOUT, delayProperties.getDeliveryLocalMillis());
+        statuses.put(DelayConstant.PAY_TIMEOUT, Orders.PENDING_PAYMENT);
+        statuses.put(DelayConstant.DELIVERY_TIMEOUT, Orders.DELIVERY_IN_PROGRESS);
+        if (!delayProperties.isWheelEnabled()) {
+            return;
+        }
+
+        timingWheel = new TimingWheel<>(delayProperties.getWheelTickMillis(), delayProperties.getWheelSize(), timer -> {
+            // 只移除自己的句柄，同一订单可能已重新计时
+            timeouts.computeIfPresent(key(timer.getTopic(), timer.getId()),
+                    (key, timeout) -> timeout.getValue() == timer ? null : timeout);
+            expired.add(timer);
+        });
+
+        running = true;
+        reaper = new Thread(this::run, "order-timer");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (reaper != null) {
+            reaper.interrupt();
+        }
+    }
+
+    /**
+     * 开始计时
+     *
+     * @param topic       任务主题，见 DelayConstant
+     * @param id          订单id
+     * @param delayMillis 超时时间（毫秒）
+     */
+    public void schedule(String topic, Long id, long delayMillis) {
+        scheduleBatch(topic, Collections.singletonList(id), delayMillis);
+    }
+
+    /**
+     * 批量开始计时
+     *
+     * @param topic
+     * @param ids
+     * @param delayMillis
+     */
+    public void scheduleBatch(String topic, List<Long> ids, long delayMillis) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Long local = localMillis.get(topic);
+        if (timingWheel == null || local == null || delayMillis <= local) {
+            delayScheduler.scheduleBatch(topic, ids, delayMillis);
+            return;
+        }
+        long deadline = System.currentTimeMillis() + delayMillis;
+        afterCommit(() -> ids.forEach(id -> track(new Timer(topic, id, deadline), local)));
+    }
+
+    /**
+     * 取消本地计时，已交给 DelayScheduler 的任务由处理方法按订单状态跳过
+     *
+     * @param topic
+     * @param ids
+     */
+    public void cancel(String topic, List<Long> ids) {
+        if (timingWheel == null || ids.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> ids.forEach(id -> {
+            TimingWheel.Timeout<Timer> timeout = timeouts.remove(key(topic, id));
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }));
+    }
+
+    private void track(Timer timer, long localDelay) {
+        // 不足一个刻度的任务会在 add 中立即到期，句柄来不及登记
+        TimingWheel.Timeout<Timer> timeout = timingWheel.add(timer,
+                Math.max(localDelay, delayProperties.getWheelTickMillis()));
+        TimingWheel.Timeout<Timer> previous = timeouts.put(key(timer.getTopic(), timer.getId()), timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                timingWheel.advance(ADVANCE_TIMEOUT_MILLIS);
+                handOff();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("订单超时时间轮处理失败", e);
+            }
+        }
+    }
+
+    /**
+     * 把本地到期的任务按主题分批交给 DelayScheduler，失败的稍后重试
+     */
+    private void handOff() {
+        List<Timer> timers = new ArrayList<>();
+        Timer timer;
+        while ((timer = expired.poll()) != null) {
+            timers.add(timer);
+        }
+        if (timers.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Timer>> byTopic = timers.stream().collect(Collectors.groupingBy(Timer::getTopic));
+        byTopic.forEach((topic, list) -> {
+            for (int i = 0; i < list.size(); i += HAND_OFF_BATCH_SIZE) {
+                List<Timer> batch = list.subList(i, Math.min(i + HAND_OFF_BATCH_SIZE, list.size()));
+                try {
+                    handOff(topic, batch);
+                } catch (Exception e) {
+                    log.error("订单超时任务交接失败，{}ms 后重试，主题：{}，数量：{}",
+                            delayProperties.getHandOffRetryMillis(), topic, batch.size(), e);
+                    batch.forEach(t -> track(t, delayProperties.getHandOffRetryMillis()));
+                }
+            }
+        });
+    }
+
+    private void handOff(String topic, List<Timer> timers) {
+        List<Long> ids = timers.stream().map(Timer::getId).collect(Collectors.toList());
+        List<Long> survivors = orderMapper.listIdsByStatus(ids, statuses.get(topic));
+        log.info("订单超时本地计时到期，主题：{}，到期：{}，交给延迟任务：{}", topic, ids.size(), survivors.size());
+        if (survivors.isEmpty()) {
+            return;
+        }
+        // 同一批的截止时间只差几个刻度，取最晚的一个，宁晚勿早
+        long deadline = timers.stream().mapToLong(Timer::getDeadline).max().getAsLong();
+        delayScheduler.scheduleBatch(topic, survivors, Math.max(deadline - System.currentTimeMillis(), 0));
+    }
+
+    private static String key(String topic, Long id) {
+        return topic + ":" + id;
+    }
+
+    /**
+     * 本地计时任务
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Timer {
+        private final String topic;
+        private final Long id;
+        // 最终超时的时间戳（毫秒）
+        private final long deadline;
+    }
+}
@@ -0,0 +1,91 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.Task.OutboxRelayTask;
+import com.sky.entity.OrderOutbox;
+import com.sky.mapper.OrderOutboxMapper;
+import com.sky.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事务发件箱
+ * 消息与订单数据写在同一个事务里：订单回滚消息一起回滚，请求线程也不用等待 broker
+ */
+@Service
+@Slf4j
+public class OutboxServiceImpl implements OutboxService {
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+    @Autowired
+    private OutboxRelayTask outboxRelayTask;
+
+    /**
+     * 在当前事务中写入一条待投递消息，事务提交后由后台任务投递
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payload
+     */
+    public void save(String exchange, String routingKey, Object payload) {
+        orderOutboxMapper.insert(build(exchange, routingKey, payload, LocalDateTime.now()));
+        wakeupAfterCommit();
+    }
+
+    /**
+     * 在当前事务中批量写入同一路由的待投递消息，一条语句完成
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payloads
+     */
+    public void saveBatch(String exchange, String routingKey, List<?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutbox> orderOutboxes = new ArrayList<>(payloads.size());
+        for (Object payload : payloads) {
+            orderOutboxes.add(build(exchange, routingKey, payload, now));
+        }
+        orderOutboxMapper.insertBatch(orderOutboxes);
+        wakeupAfterCommit();
+    }
+
+    private OrderOutbox build(String exchange, String routingKey, Object payload, LocalDateTime now) {
+        return OrderOutbox.builder()
+                .exchange(exchange)
+                .routingKey(routingKey)
+                .payload(JSON.toJSONString(payload))
+                .payloadType(payload.getClass().getName())
+                .status(OrderOutbox.PENDING)
+                .retryCount(0)
+                .createTime(now)
+                .updateTime(now)
+                .build();
+    }
+
+    /**
+     * 事务提交后立即唤醒投递任务，不必等到下一次定时轮询
+     */
+    private void wakeupAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelayTask.wakeup();
+                }
+            });
+        } else {
+            outboxRelayTask.wakeup();
+        }
+    }
+}
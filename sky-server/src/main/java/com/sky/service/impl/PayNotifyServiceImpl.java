@@ -0,0 +1,117 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.PayNotifyProperties;
+import com.sky.service.OrderService;
+import com.sky.service.PayNotifyService;
+import com.sky.service.PublishConfirmService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付成功通知
+ * 快速应答模式下回调线程只做解密和持久化入队，收到 broker 确认后立即应答微信；
+ * 数据库慢时积压在队列里，不会因为应答超时引发微信重试
+ */
+@Service
+@Slf4j
+public class PayNotifyServiceImpl implements PayNotifyService {
+
+    @Autowired
+    private PayNotifyProperties payNotifyProperties;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private PublishConfirmService publishConfirmService;
+
+    /**
+     * 受理支付成功通知：快速应答模式下持久化入队后返回，否则直接处理
+     *
+     * @param outTradeNo    商户订单号
+     * @param transactionId 微信支付交易号
+     */
+    public void accept(String outTradeNo, String transactionId) {
+        if (!payNotifyProperties.isAsync()) {
+            orderService.paySuccess(outTradeNo, transactionId);
+            return;
+        }
+
+        JSONObject message = new JSONObject();
+        message.put("outTradeNo", outTradeNo);
+        message.put("transactionId", transactionId);
+
+        // 必须等到 broker 确认落盘才能应答，否则宁可不应答让微信重试
+        CorrelationData correlationData = new CorrelationData(UUID.randomUUID().toString());
+        rabbitTemplate.convertAndSend("order.direct", "pay.notify", message.toJSONString(), correlationData);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlationData.getFuture().get(payNotifyProperties.getConfirmTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("支付通知入队超时：" + outTradeNo, e);
+        }
+        if (!confirm.isAck() || correlationData.getReturned() != null) {
+            throw new IllegalStateException("支付通知入队失败：" + outTradeNo + "，原因：" + confirm.getReason());
+        }
+    }
+
+    /**
+     * 批量处理队列中的支付成功通知
+     * 无法解析的消息记录后跳过；整批处理失败时逐条重试，逐条仍失败的通知转入死信队列，不影响同批其它通知
+     *
+     * @param messages
+     */
+    public void process(List<String> messages) {
+        // 同一批内的重复通知先合并
+        Map<String, String> payments = new LinkedHashMap<>();
+        for (String message : messages) {
+            try {
+                JSONObject jsonObject = JSON.parseObject(message);
+                payments.put(jsonObject.getString("outTradeNo"), jsonObject.getString("transactionId"));
+            } catch (Exception e) {
+                // 重新投递也无法解析，直接丢弃
+                log.error("无法解析的支付通知：{}", message, e);
+            }
+        }
+        if (payments.isEmpty()) {
+            return;
+        }
+
+        try {
+            orderService.paySuccessBatch(payments);
+            return;
+        } catch (Exception e) {
+            log.error("批量处理支付通知失败，改为逐条处理，数量：{}", payments.size(), e);
+        }
+
+        for (Map.Entry<String, String> entry : payments.entrySet()) {
+            try {
+                orderService.paySuccess(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("处理支付通知失败，转入死信队列，订单号：{}，交易号：{}", entry.getKey(), entry.getValue(), e);
+                park(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 处理失败的通知转入死信队列等待人工处理，经过发送确认，未确认时重发
+     */
+    private void park(String outTradeNo, String transactionId) {
+        JSONObject message = new JSONObject();
+        message.put("outTradeNo", outTradeNo);
+        message.put("transactionId", transactionId);
+        publishConfirmService.send("order.dlx", "pay.notify.dead", message.toJSONString());
+    }
+}
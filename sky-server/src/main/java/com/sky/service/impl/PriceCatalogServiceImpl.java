@@ -0,0 +1,217 @@
+package com.sky.service.impl;
+
+import com.sky.constant.RedisConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.service.PriceCatalogService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 价格目录
+ * 启动时把起售中的菜品和套餐加载到内存，计价时不再逐项查库；
+ * 本实例修改菜品/套餐后增量刷新，其它实例的修改通过 Redis 中的版本号发现后整体重新加载
+ */
+@Service
+@Slf4j
+public class PriceCatalogServiceImpl implements PriceCatalogService {
+
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private volatile Catalog catalog = new Catalog(-1, Collections.emptyMap(), Collections.emptyMap());
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 查询起售中的菜品，不存在或已停售时返回null
+     *
+     * @param dishId
+     * @return
+     */
+    public Dish getDish(Long dishId) {
+        return catalog.dishes.get(dishId);
+    }
+
+    /**
+     * 查询起售中的套餐，不存在或已停售时返回null
+     *
+     * @param setmealId
+     * @return
+     */
+    public Setmeal getSetmeal(Long setmealId) {
+        return catalog.setmeals.get(setmealId);
+    }
+
+    /**
+     * 查询购物车中一项商品的当前单价，已停售时返回null
+     *
+     * @param cart
+     * @return
+     */
+    public BigDecimal getPrice(ShoppingCart cart) {
+        Catalog current = catalog;
+        if (cart.getDishId() != null) {
+            Dish dish = current.dishes.get(cart.getDishId());
+            return dish == null ? null : dish.getPrice();
+        }
+        Setmeal setmeal = current.setmeals.get(cart.getSetmealId());
+        return setmeal == null ? null : setmeal.getPrice();
+    }
+
+    /**
+     * 菜品修改后刷新，事务提交后生效
+     *
+     * @param dishIds
+     */
+    public void refreshDishes(List<Long> dishIds) {
+        afterCommit(() -> {
+            synchronized (this) {
+                Map<Long, Dish> dishes = new HashMap<>(catalog.dishes);
+                for (Long id : dishIds) {
+                    Dish dish = dishMapper.getById(id);
+                    if (dish != null && StatusConstant.ENABLE.equals(dish.getStatus())) {
+                        dishes.put(id, dish);
+                    } else {
+                        dishes.remove(id);
+                    }
+                }
+                catalog = new Catalog(catalog.version, dishes, catalog.setmeals);
+            }
+            bumpVersion();
+        });
+    }
+
+    /**
+     * 套餐修改后刷新，事务提交后生效
+     *
+     * @param setmealIds
+     */
+    public void refreshSetmeals(List<Long> setmealIds) {
+        afterCommit(() -> {
+            synchronized (this) {
+                Map<Long, Setmeal> setmeals = new HashMap<>(catalog.setmeals);
+                for (Long id : setmealIds) {
+                    Setmeal setmeal = setmealMapper.getById(id);
+                    if (setmeal != null && StatusConstant.ENABLE.equals(setmeal.getStatus())) {
+                        setmeals.put(id, setmeal);
+                    } else {
+                        setmeals.remove(id);
+                    }
+                }
+                catalog = new Catalog(catalog.version, catalog.dishes, setmeals);
+            }
+            bumpVersion();
+        });
+    }
+
+    /**
+     * 检查其它实例是否修改过价格，有修改时重新加载
+     */
+    public void checkVersion() {
+        long remote = readVersion();
+        if (remote != catalog.version) {
+            log.info("价格目录版本变化：{} -> {}，重新加载", catalog.version, remote);
+            reload();
+        }
+    }
+
+    /**
+     * 全量加载，先读版本号再读数据，加载期间发生的修改会在下一次检查时再次加载
+     */
+    private synchronized void reload() {
+        long version = readVersion();
+
+        Map<Long, Dish> dishes = new HashMap<>();
+        for (Dish dish : dishMapper.list(Dish.builder().status(StatusConstant.ENABLE).build())) {
+            dishes.put(dish.getId(), dish);
+        }
+        Map<Long, Setmeal> setmeals = new HashMap<>();
+        for (Setmeal setmeal : setmealMapper.list(Setmeal.builder().status(StatusConstant.ENABLE).build())) {
+            setmeals.put(setmeal.getId(), setmeal);
+        }
+
+        catalog = new Catalog(version, dishes, setmeals);
+        log.info("价格目录加载完成，版本：{}，菜品数：{}，套餐数：{}", version, dishes.size(), setmeals.size());
+    }
+
+    /**
+     * 通知其它实例价格已修改
+     * 本实例已是上一个版本时只更新版本号，否则说明期间其它实例也有修改，整体重新加载
+     */
+    private void bumpVersion() {
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(RedisConstant.PRICE_CATALOG_VERSION_KEY);
+            synchronized (this) {
+                if (version != null && version == catalog.version + 1) {
+                    catalog = new Catalog(version, catalog.dishes, catalog.setmeals);
+                    return;
+                }
+            }
+            reload();
+        } catch (Exception e) {
+            log.error("更新价格目录版本号失败", e);
+        }
+    }
+
+    private long readVersion() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(RedisConstant.PRICE_CATALOG_VERSION_KEY);
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (Exception e) {
+            log.error("读取价格目录版本号失败", e);
+            return catalog.version;
+        }
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    /**
+     * 价格目录快照，创建后不再修改，读取时无需加锁
+     */
+    private static class Catalog {
+
+        private final long version;
+        private final Map<Long, Dish> dishes;
+        private final Map<Long, Setmeal> setmeals;
+
+        private Catalog(long version, Map<Long, Dish> dishes, Map<Long, Setmeal> setmeals) {
+            this.version = version;
+            this.dishes = dishes;
+            this.setmeals = setmeals;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.sky.service.impl;
+
+import com.sky.properties.PublishConfirmProperties;
+import com.sky.service.PublishConfirmService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步发送确认
+ * 每条消息带上关联id登记为未确认，确认回调按关联id找到原消息：确认成功记录耗时，被拒绝或退回的放入重发队列；
+ * 发件箱投递、支付通知入队等自行等待确认的消息不经过这里，回调中查不到直接跳过
+ * 未确认的消息只保存在内存中，进程退出或多次重发仍失败都会丢失，用于消费端重新投递、转入死信队列这类
+ * 在确认原消息时发出、无法放进数据库事务的消息；下单等需要可靠投递的业务消息必须写入发件箱
+ */
+@Service
+@Slf4j
+public class PublishConfirmServiceImpl implements PublishConfirmService {
+
+    // 耗时移动平均的权重
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private PublishConfirmProperties publishConfirmProperties;
+
+    // 关联id -> 已发送未确认的消息
+    private final Map<String, Pending> inFlight = new ConcurrentHashMap<>();
+    // 等待重发的消息
+    private final Queue<Pending> retryQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retrying = new AtomicInteger();
+    // 确认耗时的移动平均（毫秒）
+    private volatile double latencyMillis;
+
+    @PostConstruct
+    public void init() {
+        // 开启了 mandatory，没有路由到队列的消息会先退回并记录在关联数据上，随后才收到确认
+        rabbitTemplate.setConfirmCallback((correlationData, ack, cause) -> {
+            if (correlationData == null) {
+                return;
+            }
+            Pending pending = inFlight.remove(correlationData.getId());
+            if (pending == null) {
+                return;
+            }
+            if (ack && correlationData.getReturned() == null) {
+                double latency = (System.nanoTime() - pending.sentAt) / 1_000_000.0;
+                latencyMillis = latencyMillis == 0 ? latency : latencyMillis + LATENCY_WEIGHT * (latency - latencyMillis);
+                return;
+            }
+            failed(pending, ack ? "消息被退回：" + correlationData.getReturned().getReplyText() : cause);
+        });
+    }
+
+    /**
+     * 发送消息，不等待确认
+     *
+     * @param exchange
+     * @param routingKey
+     * @param payload    消息体，已经是 Message 时原样发送（保留消息头）
+     */
+    public void send(String exchange, String routingKey, Object payload) {
+        publish(new Pending(exchange, routingKey, payload));
+    }
+
+    /**
+     * 将确认超时的消息转入重发，并重发所有失败的消息
+     */
+    public void retry() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishConfirmProperties.getConfirmTimeoutMillis());
+        long now = System.nanoTime();
+        for (Map.Entry<String, Pending> entry : inFlight.entrySet()) {
+            // 与确认回调并发时只有一方能移除成功
+            if (now - entry.getValue().sentAt > timeoutNanos && inFlight.remove(entry.getKey(), entry.getValue())) {
+                failed(entry.getValue(), "确认超时");
+            }
+        }
+
+        Pending pending;
+        while ((pending = retryQueue.poll()) != null) {
+            retrying.decrementAndGet();
+            publish(pending);
+        }
+    }
+
+    /**
+     * 已发送未确认、以及等待重发的消息数
+     *
+     * @return
+     */
+    public int getOutstanding() {
+        return inFlight.size() + retrying.get();
+    }
+
+    /**
+     * 发送到收到确认的平均耗时（毫秒），按指数加权移动平均计算
+     *
+     * @return
+     */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    private void publish(Pending pending) {
+        pending.attempts++;
+        pending.sentAt = System.nanoTime();
+        CorrelationData correlationData = new CorrelationData(UUID.randomUUID().toString());
+        inFlight.put(correlationData.getId(), pending);
+        try {
+            rabbitTemplate.convertAndSend(pending.exchange, pending.routingKey, pending.payload, correlationData);
+        } catch (Exception e) {
+            // 连接异常等同步失败同样转入重发，不抛给调用方
+            if (inFlight.remove(correlationData.getId()) != null) {
+                failed(pending, e.getMessage());
+            }
+        }
+    }
+
+    private void failed(Pending pending, String reason) {
+        if (pending.attempts >= publishConfirmProperties.getMaxRetry()) {
+            log.error("消息发送 {} 次仍失败，放弃发送，交换机：{}，路由键：{}，原因：{}",
+                    pending.attempts, pending.exchange, pending.routingKey, reason);
+            return;
+        }
+        log.warn("消息发送失败，稍后重发，交换机：{}，路由键：{}，原因：{}", pending.exchange, pending.routingKey, reason);
+        retrying.incrementAndGet();
+        retryQueue.add(pending);
+    }
+
+    /**
+     * 已发送未确认的消息
+     */
+    private static class Pending {
+        private final String exchange;
+        private final String routingKey;
+        private final Object payload;
+        private int attempts;
+        private volatile long sentAt;
+
+        private Pending(String exchange, String routingKey, Object payload) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.sky.service.impl;
+
+import com.sky.constant.DelayConstant;
+import com.sky.service.DelayScheduler;
+import com.sky.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 RabbitMQ 固定 TTL 队列的延迟任务
+ * 延迟时间由队列 TTL 决定，只支持预置的支付超时和派送超时两种任务，每个任务经过两级延迟队列；
+ * 剩余延迟不超过第二级队列 TTL 时（本地时间轮已计过第一段），直接投递到第二级队列
+ * 消息写入发件箱，与订单数据同一事务提交
+ */
+@Slf4j
+public class RabbitDelayScheduler implements DelayScheduler {
+
+    // 延迟时间与队列 TTL 相差不超过该值时不告警
+    private static final long TOLERANCE_MILLIS = 5000;
+
+    // 主题 -> 第一级延迟队列的路由键，以及两级队列的总延迟
+    private static final Map<String, String> ROUTING_KEYS = new HashMap<>();
+    private static final Map<String, Long> DELAYS = new HashMap<>();
+    // 主题 -> 第二级延迟队列的路由键及其 TTL
+    private static final Map<String, String> SECOND_ROUTING_KEYS = new HashMap<>();
+    private static final Map<String, Long> SECOND_DELAYS = new HashMap<>();
+
+    static {
+        ROUTING_KEYS.put(DelayConstant.PAY_TIMEOUT, "order.delay.10s");
+        DELAYS.put(DelayConstant.PAY_TIMEOUT, DelayConstant.PAY_TIMEOUT_MILLIS);
+        SECOND_ROUTING_KEYS.put(DelayConstant.PAY_TIMEOUT, "order.delay.14m");
+        SECOND_DELAYS.put(DelayConstant.PAY_TIMEOUT, 890000L);
+        ROUTING_KEYS.put(DelayConstant.DELIVERY_TIMEOUT, "order.delay.60m");
+        DELAYS.put(DelayConstant.DELIVERY_TIMEOUT, DelayConstant.DELIVERY_TIMEOUT_MILLIS);
+        SECOND_ROUTING_KEYS.put(DelayConstant.DELIVERY_TIMEOUT, "order.delay.23h");
+        SECOND_DELAYS.put(DelayConstant.DELIVERY_TIMEOUT, 82800000L);
+    }
+
+    private final OutboxService outboxService;
+
+    public RabbitDelayScheduler(OutboxService outboxService) {
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * 调度一个延迟任务
+     *
+     * @param topic       任务主题，见 DelayConstant
+     * @param id          订单id
+     * @param delayMillis 延迟时间（毫秒）
+     */
+    public void schedule(String topic, Long id, long delayMillis) {
+        scheduleBatch(topic, Collections.singletonList(id), delayMillis);
+    }
+
+    /**
+     * 批量调度同一主题、同一延迟的任务
+     *
+     * @param topic
+     * @param ids
+     * @param delayMillis
+     */
+    public void scheduleBatch(String topic, List<Long> ids, long delayMillis) {
+        String routingKey = ROUTING_KEYS.get(topic);
+        if (routingKey == null) {
+            throw new IllegalArgumentException("RabbitMQ 延迟队列不支持该主题：" + topic);
+        }
+        long delay = DELAYS.get(topic);
+        if (delayMillis <= SECOND_DELAYS.get(topic)) {
+            routingKey = SECOND_ROUTING_KEYS.get(topic);
+            delay = SECOND_DELAYS.get(topic);
+        }
+        if (Math.abs(delay - delayMillis) > TOLERANCE_MILLIS) {
+            log.warn("RabbitMQ 延迟队列的延迟时间固定为 {}ms，忽略指定的 {}ms", delay, delayMillis);
+        }
+        if (ids.size() == 1) {
+            outboxService.save("order.direct", routingKey, ids.get(0));
+        } else {
+            outboxService.saveBatch("order.direct", routingKey, ids);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.sky.service.impl;
+
+import com.sky.constant.RedisConstant;
+import com.sky.service.DelayStore;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 延迟任务的 Redis 存储
+ * 待执行任务和已认领任务各是一个有序集合，认领在 Lua 脚本中完成，多个实例同时轮询也不会重复认领
+ */
+public class RedisDelayStore implements DelayStore {
+
+    // KEYS[1] 待执行，KEYS[2] 已认领；ARGV[1] 当前时间，ARGV[2] 最大认领数，ARGV[3] 租期
+    // 先把租约过期的任务放回待执行，再认领到期任务
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+                    "for i = 1, #expired do " +
+                    "redis.call('zrem', KEYS[2], expired[i]) " +
+                    "redis.call('zadd', KEYS[1], ARGV[1], expired[i]) " +
+                    "end " +
+                    "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+                    "local lease = tonumber(ARGV[1]) + tonumber(ARGV[3]) " +
+                    "for i = 1, #ids do " +
+                    "redis.call('zrem', KEYS[1], ids[i]) " +
+                    "redis.call('zadd', KEYS[2], lease, ids[i]) " +
+                    "end " +
+                    "return ids", List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public RedisDelayStore(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public void add(String topic, List<Long> ids, long dueMillis) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        for (Long id : ids) {
+            tuples.add(new DefaultTypedTuple<>(String.valueOf(id), (double) dueMillis));
+        }
+        stringRedisTemplate.opsForZSet().add(RedisConstant.DELAY_QUEUE_KEY + topic, tuples);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Long> claim(String topic, long now, int limit, long leaseMillis) {
+        List<String> ids = stringRedisTemplate.execute(CLAIM_SCRIPT,
+                Arrays.asList(RedisConstant.DELAY_QUEUE_KEY + topic, RedisConstant.DELAY_LEASE_KEY + topic),
+                String.valueOf(now), String.valueOf(limit), String.valueOf(leaseMillis));
+        return ids.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    public void ack(String topic, Long id) {
+        stringRedisTemplate.opsForZSet().remove(RedisConstant.DELAY_LEASE_KEY + topic, String.valueOf(id));
+        stringRedisTemplate.opsForHash().delete(RedisConstant.DELAY_ATTEMPTS_KEY + topic, String.valueOf(id));
+    }
+
+    public long fail(String topic, Long id) {
+        return stringRedisTemplate.opsForHash().increment(RedisConstant.DELAY_ATTEMPTS_KEY + topic, String.valueOf(id), 1);
+    }
+}
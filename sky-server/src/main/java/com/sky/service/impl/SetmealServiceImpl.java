@@ -15,6 +15,7 @@ import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
+import com.sky.service.PriceCatalogService;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
@@ -26,6 +27,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -41,6 +43,8 @@ public class SetmealServiceImpl implements SetmealService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private DishMapper dishMapper;
+    @Autowired
+    private PriceCatalogService priceCatalogService;
 
     /**
      * 根据分类id查询套餐
@@ -89,6 +93,9 @@ public class SetmealServiceImpl implements SetmealService {
 
         //保存套餐和菜品的关联关系
         setmealDishMapper.insertBatch(setmealDishes);
+
+        //刷新价格目录
+        priceCatalogService.refreshSetmeals(Collections.singletonList(setmealId));
     }
 
     /**
@@ -126,6 +133,9 @@ public class SetmealServiceImpl implements SetmealService {
             //删除套餐菜品关系表中的数据
             setmealDishMapper.deleteBySetmealId(setmealId);
         });
+
+        //刷新价格目录
+        priceCatalogService.refreshSetmeals(ids);
     }
 
     /**
@@ -171,6 +181,9 @@ public class SetmealServiceImpl implements SetmealService {
         });
         //3、重新插入套餐和菜品的关联关系，操作setmeal_dish表，执行insert
         setmealDishMapper.insertBatch(setmealDishes);
+
+        //刷新价格目录
+        priceCatalogService.refreshSetmeals(Collections.singletonList(setmealId));
     }
 
     /**
@@ -199,6 +212,9 @@ public class SetmealServiceImpl implements SetmealService {
                 .status(status)
                 .build();
         setmealMapper.update(setmeal);
+
+        //刷新价格目录
+        priceCatalogService.refreshSetmeals(Collections.singletonList(id));
     }
 }
 
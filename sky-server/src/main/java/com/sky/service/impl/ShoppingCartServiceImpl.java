@@ -1,19 +1,21 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.Dish;
 import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
-import com.sky.mapper.DishMapper;
-import com.sky.mapper.SetmealMapper;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.ShoppingCartMapper;
+import com.sky.service.PriceCatalogService;
 import com.sky.service.ShoppingCartService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -24,9 +26,7 @@ public class ShoppingCartServiceImpl  implements ShoppingCartService {
     @Autowired
     private ShoppingCartMapper shoppingCartMapper;
     @Autowired
-    private DishMapper dishMapper;
-    @Autowired
-    private SetmealMapper setmealMapper;
+    private PriceCatalogService priceCatalogService;
 
     /**
      * 添加购物车
@@ -50,17 +50,23 @@ public class ShoppingCartServiceImpl  implements ShoppingCartService {
             shoppingCartMapper.updateNumberById(cart);
         }
         else{
-            //判断添加的是菜品还是套餐
+            //判断添加的是菜品还是套餐，商品信息从价格目录中获取，不再查库
             if (shoppingCartDTO.getDishId() != null) {
                 //查询菜品信息
-                Dish dish = dishMapper.getById(shoppingCartDTO.getDishId());
+                Dish dish = priceCatalogService.getDish(shoppingCartDTO.getDishId());
+                if (dish == null) {
+                    throw new ShoppingCartBusinessException(MessageConstant.ITEM_NOT_ON_SALE);
+                }
                 shoppingCart.setName(dish.getName());
                 shoppingCart.setImage(dish.getImage());
                 shoppingCart.setAmount(dish.getPrice());
             }
             else{
                 //查询套餐信息
-                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+                Setmeal setmeal = priceCatalogService.getSetmeal(shoppingCartDTO.getSetmealId());
+                if (setmeal == null) {
+                    throw new ShoppingCartBusinessException(MessageConstant.ITEM_NOT_ON_SALE);
+                }
                 shoppingCart.setName(setmeal.getName());
                 shoppingCart.setImage(setmeal.getImage());
                 shoppingCart.setAmount(setmeal.getPrice());
@@ -84,6 +90,15 @@ public class ShoppingCartServiceImpl  implements ShoppingCartService {
         ShoppingCart shoppingCart = new ShoppingCart();
         shoppingCart.setUserId(userId);
         List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+
+        //加入购物车后价格有调整的，按当前价格展示并更新，保证前端计算的金额与下单时一致
+        for (ShoppingCart cart : list) {
+            BigDecimal price = priceCatalogService.getPrice(cart);
+            if (price != null && price.compareTo(cart.getAmount()) != 0) {
+                cart.setAmount(price);
+                shoppingCartMapper.updateAmountById(cart);
+            }
+        }
         return list;
     }
 
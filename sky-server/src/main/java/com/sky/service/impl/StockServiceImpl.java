@@ -0,0 +1,225 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.constant.RedisConstant;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.service.StockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 菜品/套餐库存
+ * 实时库存保存在 Redis，整个购物车的校验和扣减在一个 Lua 脚本中完成，下单不会争抢 MySQL 行锁
+ * 库存 Key 不存在表示不限量；MySQL 的 stock 列由定时任务对账回写，Redis 数据丢失时据此恢复
+ */
+@Service
+@Slf4j
+public class StockServiceImpl implements StockService {
+
+    // 预占记录保留时间（秒），超过后订单取消不再归还库存
+    private static final long RESERVED_EXPIRE_SECONDS = 2 * 24 * 60 * 60;
+
+    // KEYS[1] 预占记录，KEYS[2..n] 库存；ARGV[1] 预占记录过期时间，ARGV[2..n] 数量
+    // 先全部校验再全部扣减，返回0表示成功，否则返回第一个库存不足的商品序号
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #KEYS do " +
+                    "local stock = redis.call('get', KEYS[i]) " +
+                    "if stock and tonumber(stock) < tonumber(ARGV[i]) then return i - 1 end " +
+                    "end " +
+                    "for i = 2, #KEYS do " +
+                    "if redis.call('exists', KEYS[i]) == 1 then " +
+                    "redis.call('decrby', KEYS[i], ARGV[i]) " +
+                    "redis.call('hset', KEYS[1], KEYS[i], ARGV[i]) " +
+                    "end " +
+                    "end " +
+                    "if redis.call('exists', KEYS[1]) == 1 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+                    "return 0", Long.class);
+
+    // KEYS[1] 预占记录；按记录归还库存后删除记录，记录不存在时什么都不做，保证只归还一次
+    // 期间改为不限量的商品不再归还
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('hgetall', KEYS[1]) " +
+                    "for i = 1, #items, 2 do " +
+                    "if redis.call('exists', items[i]) == 1 then redis.call('incrby', items[i], items[i + 1]) end " +
+                    "end " +
+                    "redis.call('del', KEYS[1]) " +
+                    "return #items / 2", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+
+    /**
+     * 为订单预占整个购物车的库存，任意一项不足时全部不扣减
+     * 在事务中调用时，事务回滚会自动归还
+     *
+     * @param orderNumber
+     * @param carts
+     */
+    public void reserve(String orderNumber, List<ShoppingCart> carts) {
+        // 同一菜品不同口味在购物车中是多行，先按库存 Key 合并数量
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (ShoppingCart cart : carts) {
+            String key = cart.getDishId() != null
+                    ? RedisConstant.STOCK_DISH_KEY + cart.getDishId()
+                    : RedisConstant.STOCK_SETMEAL_KEY + cart.getSetmealId();
+            quantities.merge(key, cart.getNumber(), Integer::sum);
+            names.put(key, cart.getName());
+        }
+
+        List<String> keys = new ArrayList<>(quantities.size() + 1);
+        List<String> args = new ArrayList<>(quantities.size() + 1);
+        keys.add(RedisConstant.STOCK_RESERVED_KEY + orderNumber);
+        args.add(String.valueOf(RESERVED_EXPIRE_SECONDS));
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            keys.add(entry.getKey());
+            args.add(String.valueOf(entry.getValue()));
+        }
+
+        Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        if (result != null && result > 0) {
+            String name = names.get(keys.get(result.intValue()));
+            throw new OrderBusinessException(MessageConstant.STOCK_NOT_ENOUGH + "：" + name);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(orderNumber);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 释放订单预占的库存，重复调用只会释放一次
+     * 在事务中调用时，事务提交后才归还
+     *
+     * @param orderNumber
+     */
+    public void release(String orderNumber) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRelease(orderNumber);
+                }
+            });
+        } else {
+            doRelease(orderNumber);
+        }
+    }
+
+    /**
+     * 设置菜品库存
+     *
+     * @param dishId
+     * @param stock null表示不限量
+     */
+    public void setDishStock(Long dishId, Integer stock) {
+        dishMapper.updateStock(dishId, stock);
+        setStock(RedisConstant.STOCK_DISH_KEY + dishId, stock);
+    }
+
+    /**
+     * 设置套餐库存
+     *
+     * @param setmealId
+     * @param stock null表示不限量
+     */
+    public void setSetmealStock(Long setmealId, Integer stock) {
+        setmealMapper.updateStock(setmealId, stock);
+        setStock(RedisConstant.STOCK_SETMEAL_KEY + setmealId, stock);
+    }
+
+    /**
+     * Redis 与 MySQL 库存对账
+     * Redis 中有的以 Redis 为准回写 MySQL；Redis 中丢失的（重启、被清空）用 MySQL 的值恢复
+     */
+    public void reconcile() {
+        List<Long> dishIds = new ArrayList<>();
+        List<Integer> dishStocks = new ArrayList<>();
+        for (Dish dish : dishMapper.listWithStock()) {
+            dishIds.add(dish.getId());
+            dishStocks.add(dish.getStock());
+        }
+        reconcile(RedisConstant.STOCK_DISH_KEY, dishIds, dishStocks, dishMapper::updateStock);
+
+        List<Long> setmealIds = new ArrayList<>();
+        List<Integer> setmealStocks = new ArrayList<>();
+        for (Setmeal setmeal : setmealMapper.listWithStock()) {
+            setmealIds.add(setmeal.getId());
+            setmealStocks.add(setmeal.getStock());
+        }
+        reconcile(RedisConstant.STOCK_SETMEAL_KEY, setmealIds, setmealStocks, setmealMapper::updateStock);
+    }
+
+    private void reconcile(String prefix, List<Long> ids, List<Integer> stocks, BiConsumer<Long, Integer> updater) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add(prefix + id);
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return;
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            String value = values.get(i);
+            Integer stock = stocks.get(i);
+            if (value == null) {
+                stringRedisTemplate.opsForValue().setIfAbsent(keys.get(i), String.valueOf(stock));
+                log.warn("Redis库存丢失，使用数据库库存恢复：{}={}", keys.get(i), stock);
+            } else if (!Integer.valueOf(value).equals(stock)) {
+                updater.accept(ids.get(i), Integer.valueOf(value));
+            }
+        }
+    }
+
+    private void setStock(String key, Integer stock) {
+        if (stock == null) {
+            stringRedisTemplate.delete(key);
+        } else {
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(stock));
+        }
+    }
+
+    private void doRelease(String orderNumber) {
+        try {
+            Long count = stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    Collections.singletonList(RedisConstant.STOCK_RESERVED_KEY + orderNumber));
+            if (count != null && count > 0) {
+                log.info("订单 {} 归还库存，商品数：{}", orderNumber, count);
+            }
+        } catch (Exception e) {
+            log.error("订单 {} 归还库存失败", orderNumber, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.RedisConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.exception.OrderBusinessException;
+import com.sky.service.OrderIntakeService;
+import com.sky.service.OrderService;
+import com.sky.service.SubmitTokenService;
+import com.sky.vo.OrderSubmitVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单令牌
+ * 进入下单页时领取令牌，提交时用 SETNX 抢占该令牌的结果位：
+ * 抢到的请求执行下单并缓存结果；没抢到的是重复提交，直接返回缓存的结果，不再重复解析地址、写库、发消息
+ */
+@Service
+@Slf4j
+public class SubmitTokenServiceImpl implements SubmitTokenService {
+
+    // 令牌有效期（分钟）
+    private static final long TOKEN_EXPIRE_MINUTES = 30;
+    // 提交中占位的有效期（秒），实例宕机时占位过期后允许重新提交
+    private static final long PROCESSING_EXPIRE_SECONDS = 60;
+    // 下单结果的缓存时间（分钟）
+    private static final long RESULT_EXPIRE_MINUTES = 10;
+    // 提交中的占位值
+    private static final String PROCESSING = "PROCESSING";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    /**
+     * 为当前用户生成下单令牌
+     *
+     * @return
+     */
+    public String createToken() {
+        String token = UUID.randomUUID().toString().replace("-", "");
+        stringRedisTemplate.opsForValue().set(tokenKey(token), "1", TOKEN_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        return token;
+    }
+
+    /**
+     * 幂等下单，同一令牌只会真正下单一次
+     * 未携带令牌时按原流程下单，兼容旧版本小程序
+     *
+     * @param ordersSubmitDTO
+     * @return
+     */
+    public OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO) {
+        String token = ordersSubmitDTO.getSubmitToken();
+        if (token == null || token.isEmpty()) {
+            return doSubmit(ordersSubmitDTO);
+        }
+
+        String resultKey = resultKey(token);
+        Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(resultKey, PROCESSING, PROCESSING_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            // 重复提交：已有结果直接返回，仍在处理中则提示稍后
+            String result = stringRedisTemplate.opsForValue().get(resultKey);
+            if (result == null || PROCESSING.equals(result)) {
+                throw new OrderBusinessException(MessageConstant.ORDER_SUBMITTING);
+            }
+            log.info("重复提交订单，返回首次下单结果，令牌：{}", token);
+            return JSON.parseObject(result, OrderSubmitVO.class);
+        }
+
+        // 抢到结果位后消费令牌，未领取或已过期的令牌不能下单
+        if (!Boolean.TRUE.equals(stringRedisTemplate.delete(tokenKey(token)))) {
+            stringRedisTemplate.delete(resultKey);
+            throw new OrderBusinessException(MessageConstant.SUBMIT_TOKEN_INVALID);
+        }
+
+        OrderSubmitVO orderSubmitVO;
+        try {
+            orderSubmitVO = doSubmit(ordersSubmitDTO);
+        } catch (RuntimeException e) {
+            // 下单失败（库存不足、超出配送范围等）时归还令牌，用户修改后可以用同一令牌重新提交
+            stringRedisTemplate.opsForValue().set(tokenKey(token), "1", TOKEN_EXPIRE_MINUTES, TimeUnit.MINUTES);
+            stringRedisTemplate.delete(resultKey);
+            throw e;
+        }
+
+        stringRedisTemplate.opsForValue().set(resultKey, JSON.toJSONString(orderSubmitVO), RESULT_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        return orderSubmitVO;
+    }
+
+    /**
+     * 开启异步下单时只受理并返回排队凭证，否则同步下单
+     */
+    private OrderSubmitVO doSubmit(OrdersSubmitDTO ordersSubmitDTO) {
+        if (orderIntakeService.isEnabled()) {
+            return orderIntakeService.accept(ordersSubmitDTO);
+        }
+        return orderService.submit(ordersSubmitDTO);
+    }
+
+    private String tokenKey(String token) {
+        return RedisConstant.ORDER_SUBMIT_TOKEN_KEY + BaseContext.getCurrentId() + ":" + token;
+    }
+
+    private String resultKey(String token) {
+        return RedisConstant.ORDER_SUBMIT_RESULT_KEY + BaseContext.getCurrentId() + ":" + token;
+    }
+}
@@ -6,6 +6,7 @@ import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.OrderCounterService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -31,6 +32,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private OrderCounterService orderCounterService;
 
     /**
      * 根据时间段统计营业数据
@@ -91,6 +94,12 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
+        // 优先读取订单计数器，计数器不可用时查询订单表
+        OrderOverViewVO overView = orderCounterService.getTodayOverView();
+        if (overView != null) {
+            return overView;
+        }
+
         Map map = new HashMap();
         map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
         map.put("status", Orders.TO_BE_CONFIRMED);
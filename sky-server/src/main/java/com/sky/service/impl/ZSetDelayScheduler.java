@@ -0,0 +1,112 @@
+package com.sky.service.impl;
+
+import com.sky.properties.DelayProperties;
+import com.sky.service.DelayScheduler;
+import com.sky.service.DelayStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 基于有序集合的延迟任务，支持任意延迟时间，到期后一跳直达处理方法
+ * 任务按到期时间保存在有序集合中，定时轮询原子地认领一批到期任务并加租约；
+ * 执行成功后确认删除，失败或实例宕机时租约到期会被重新认领，超过最大执行次数后丢弃
+ */
+@Slf4j
+public class ZSetDelayScheduler implements DelayScheduler {
+
+    private final DelayStore delayStore;
+    private final DelayProperties delayProperties;
+    // 主题 -> 处理方法
+    private final Map<String, Consumer<Long>> handlers;
+
+    public ZSetDelayScheduler(DelayStore delayStore, DelayProperties delayProperties, Map<String, Consumer<Long>> handlers) {
+        this.delayStore = delayStore;
+        this.delayProperties = delayProperties;
+        this.handlers = handlers;
+    }
+
+    /**
+     * 调度一个延迟任务
+     *
+     * @param topic       任务主题，见 DelayConstant
+     * @param id          订单id
+     * @param delayMillis 延迟时间（毫秒）
+     */
+    public void schedule(String topic, Long id, long delayMillis) {
+        scheduleBatch(topic, Collections.singletonList(id), delayMillis);
+    }
+
+    /**
+     * 批量调度同一主题、同一延迟的任务
+     *
+     * @param topic
+     * @param ids
+     * @param delayMillis
+     */
+    public void scheduleBatch(String topic, List<Long> ids, long delayMillis) {
+        if (!handlers.containsKey(topic)) {
+            throw new IllegalArgumentException("没有该主题的延迟任务处理方法：" + topic);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        // 事务提交后才写入，回滚的订单不会产生任务
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(topic, ids, delayMillis);
+                }
+            });
+        } else {
+            add(topic, ids, delayMillis);
+        }
+    }
+
+    private void add(String topic, List<Long> ids, long delayMillis) {
+        try {
+            delayStore.add(topic, ids, System.currentTimeMillis() + delayMillis);
+        } catch (Exception e) {
+            // 写入失败的任务由超时订单扫描兜底
+            log.error("写入延迟任务失败，主题：{}，id：{}", topic, ids, e);
+        }
+    }
+
+    /**
+     * 认领并执行所有主题的到期任务，每个主题一直处理到没有到期任务为止
+     */
+    public void poll() {
+        for (Map.Entry<String, Consumer<Long>> entry : handlers.entrySet()) {
+            String topic = entry.getKey();
+            List<Long> ids;
+            do {
+                ids = delayStore.claim(topic, System.currentTimeMillis(),
+                        delayProperties.getBatchSize(), delayProperties.getLeaseMillis());
+                for (Long id : ids) {
+                    execute(topic, id, entry.getValue());
+                }
+            } while (ids.size() == delayProperties.getBatchSize());
+        }
+    }
+
+    private void execute(String topic, Long id, Consumer<Long> handler) {
+        try {
+            handler.accept(id);
+            delayStore.ack(topic, id);
+        } catch (Exception e) {
+            long attempts = delayStore.fail(topic, id);
+            if (attempts >= delayProperties.getMaxAttempts()) {
+                log.error("延迟任务执行 {} 次仍失败，放弃执行，主题：{}，id：{}", attempts, topic, id, e);
+                delayStore.ack(topic, id);
+            } else {
+                log.warn("延迟任务执行失败，租约到期后重试，主题：{}，id：{}", topic, id, e);
+            }
+        }
+    }
+}
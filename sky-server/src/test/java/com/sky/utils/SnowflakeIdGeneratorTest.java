@@ -0,0 +1,109 @@
+package com.sky.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 雪花算法ID生成器多线程测试：检查跨线程不重复、单线程内递增，吞吐量记录在 debug 日志
+ */
+@Slf4j
+public class SnowflakeIdGeneratorTest {
+
+    private static final long EPOCH = 1704067200000L;
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 200_000;
+
+    @Test
+    public void testConcurrentUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(EPOCH, 1, 5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                long[] local = new long[IDS_PER_THREAD];
+                start.await();
+                for (int j = 0; j < IDS_PER_THREAD; j++) {
+                    local[j] = generator.nextId();
+                }
+                long duplicates = 0;
+                for (int j = 0; j < IDS_PER_THREAD; j++) {
+                    // 同一线程先后拿到的ID必须递增
+                    assertTrue(j == 0 || local[j] > local[j - 1]);
+                    if (!ids.add(local[j])) {
+                        duplicates++;
+                    }
+                }
+                return duplicates;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long duplicates = 0;
+        for (Future<Long> future : futures) {
+            duplicates += future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        assertEquals(0, duplicates);
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+        log.debug("{} 个线程共生成 {} 个ID，耗时 {} ms，吞吐量 {} 个/秒", THREADS, ids.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ids.size() * 1_000_000_000L / elapsedNanos);
+    }
+
+    @Test
+    public void testNumberWidthAndOrder() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(EPOCH, 1023, 5);
+        String last = generator.nextNumber();
+        for (int i = 0; i < 10_000; i++) {
+            String number = generator.nextNumber();
+            assertEquals(19, number.length());
+            assertTrue(number.compareTo(last) > 0);
+            last = number;
+        }
+    }
+
+    @Test
+    public void testSuspendAndResume() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(EPOCH, 1, 5);
+        long before = generator.nextId();
+        generator.suspend();
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.resume(2, Long.MAX_VALUE);
+        long after = generator.nextId();
+        assertTrue(after > before);
+        assertEquals(2, (after >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    public void testLeaseExpired() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(EPOCH, 1, 5);
+        generator.renew(System.currentTimeMillis() + 60_000);
+        generator.nextId();
+
+        // 超过有效期仍未续约，拒绝生成
+        generator.renew(System.currentTimeMillis() - 1);
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.renew(System.currentTimeMillis() + 60_000);
+        generator.nextId();
+    }
+}
@@ -0,0 +1,61 @@
+-- 在原 sky_take_out 库基础上执行的增量脚本，按顺序执行
+
+-- 地址簿增加经纬度，保存地址后由后台异步解析填充，下单时直接用于配送距离计算
+alter table address_book
+    add column lat decimal(10, 6) null comment '纬度',
+    add column lng decimal(10, 6) null comment '经度';
+
+-- 订单消息发件箱：与订单数据同一事务写入，后台任务批量投递到 RabbitMQ，回滚的订单不会产生消息
+create table order_outbox
+(
+    id           bigint auto_increment primary key,
+    exchange     varchar(64)       not null comment '交换机',
+    routing_key  varchar(64)       not null comment '路由键',
+    payload      varchar(2048)     not null comment '消息内容（json）',
+    payload_type varchar(128)      not null comment '消息内容的类型',
+    status       tinyint default 0 not null comment '投递状态 0待投递 1投递中 2已投递 3投递失败',
+    retry_count  int     default 0 not null comment '已重试次数',
+    owner        varchar(64)       null comment '正在投递该消息的实例',
+    create_time  datetime          not null,
+    update_time  datetime          not null,
+    index idx_status_id (status, id),
+    index idx_owner (owner)
+) comment '订单消息发件箱';
+
+-- 菜品/套餐库存：null 表示不限量，实时库存在 Redis 中扣减，定时回写到这里
+alter table dish
+    add stock int null comment '库存，null表示不限量';
+alter table setmeal
+    add stock int null comment '库存，null表示不限量';
+
+-- 订单明细按订单id批量查询（分页组装、批量完成统计销量）
+alter table order_detail
+    add index idx_order_id (order_id);
+
+-- 订单游标分页：按 (下单时间, id) 倒序定位，分别覆盖用户历史订单、管理端按状态筛选和不带条件的查询
+alter table orders
+    add index idx_user_time (user_id, order_time, id),
+    add index idx_status_time (status, order_time, id),
+    add index idx_order_time (order_time, id);
+
+-- 地址经纬度补偿：记录解析失败次数和下次重试时间，按 (lat, id) 分页扫描尚未解析的地址
+alter table address_book
+    add column geocode_fail_count int default 0 not null comment '经纬度解析失败次数',
+    add column geocode_retry_time datetime null comment '经纬度解析下次重试时间',
+    add index idx_lat_id (lat, id);
+
+-- 派送超时按开始派送的时间判定：超时扫描按 (status, delivery_start_time, id) 定位
+alter table orders
+    add column delivery_start_time datetime null comment '开始派送时间',
+    add index idx_status_delivery_start (status, delivery_start_time, id);
+-- 升级前已在派送中的订单没有记录开始派送时间，取下单时间与预计送达时间中较晚的一个，宁晚勿早
+update orders set delivery_start_time = greatest(order_time, coalesce(estimated_delivery_time, order_time))
+where status = 4 and delivery_start_time is null;
+
+-- 订单号唯一：异步下单的消息可能重复投递、并发消费，由唯一索引保证同一排队凭证只生成一个订单
+alter table orders
+    add unique index uk_number (number);
+
+-- 打包费按每份商品费用乘以件数计算，可能带角分，改为与订单金额相同的精确类型
+alter table orders
+    modify column pack_amount decimal(10,2) null comment '打包费';